@@ -0,0 +1,63 @@
+package classes;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * EnemyMoveBenchmark.java - compares the one enemy at a time movement loop
+ * with the branch free (SIMD) loops
+ *
+ * @author Darwin
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EnemyMoveBenchmark {
+
+    // number of enemies
+    @Param({"1000", "100000", "1000000"})
+    public int enemies;
+
+    // the enemies being moved
+    private Enemies store;
+
+    /**
+     * Spawns the enemies before every iteration so they stay near the top
+     * (only live enemies are kept in the pool, so none are dead)
+     */
+    @Setup(Level.Iteration)
+    public void setup() {
+        GameRandom random = new GameRandom(1);
+        store = new Enemies(enemies);
+        for (int k = 0; k < enemies; k++) {
+            store.spawn(random.nextDouble() * World.ZONE_SIZE,
+                    -World.ZONE_SIZE * random.nextDouble(),
+                    Math.pow(1.7, random.nextDouble()), 40 + random.nextDouble() * 40);
+        }
+    }
+
+    @Benchmark
+    public double moveEach() {
+        return store.moveEach();
+    }
+
+    @Benchmark
+    public double moveAll() {
+        return store.moveAll();
+    }
+
+}
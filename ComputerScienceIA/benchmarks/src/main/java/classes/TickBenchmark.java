@@ -0,0 +1,127 @@
+package classes;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * TickBenchmark.java - measures each phase of the game tick and a full tick
+ *
+ * @author Darwin
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TickBenchmark {
+
+    // seed of the game every iteration plays, so each run measures the
+    // same waves
+    private static final long SEED = 1;
+    // lasers fired across the enemies before each laser benchmark call, and
+    // the distance each one travels in a tick
+    private static final int VOLLEY = 64;
+    private static final double LASER_STEP = 100;
+
+    /**
+     * The world being measured
+     */
+    @State(Scope.Thread)
+    public static class Game {
+
+        // number of enemies in each wave
+        @Param({"20", "1000", "10000", "100000"})
+        public int enemies;
+
+        World world;
+
+        /**
+         * Creates a fresh world before every iteration so each one starts
+         * with the whole wave alive at the top of the map
+         */
+        @Setup(Level.Iteration)
+        public void setup() {
+            world = new World(enemies, SEED);
+            world.load(SEED);
+            // large waves stream in a batch each tick, so the rest are
+            // spawned here
+            world.spawnRestOfWave();
+            if (world.enemies.count != enemies) {
+                throw new IllegalStateException("expected " + enemies
+                        + " enemies, spawned " + world.enemies.count);
+            }
+        }
+
+    }
+
+    /**
+     * A world with lasers in flight for the laser benchmarks (they leave the
+     * zone or hit enemies, so the same row of lasers is fired again before
+     * every call)
+     */
+    @State(Scope.Thread)
+    public static class Volley extends Game {
+
+        /**
+         * Fires a row of lasers across the band the enemies spawn in
+         */
+        @Setup(Level.Invocation)
+        public void fire() {
+            Projectiles lasers = world.lasers;
+            lasers.clear();
+            for (int k = 0; k < VOLLEY; k++) {
+                // spread evenly over the width and height of the band, half
+                // of them flying each way
+                double x = (k + 0.5) * World.ZONE_SIZE / VOLLEY;
+                double y = -World.ZONE_SIZE * (0.8 + 0.2 * (k + 0.5) / VOLLEY);
+                lasers.fire(x, y, k % 2 == 0 ? LASER_STEP : -LASER_STEP, 0);
+            }
+        }
+
+    }
+
+    @Benchmark
+    public void moveDrone(Game game) {
+        game.world.moveDrone();
+    }
+
+    @Benchmark
+    public void moveLaser(Volley game) {
+        game.world.moveLaser();
+    }
+
+    @Benchmark
+    public void checkForEnemyDeaths(Volley game, Blackhole bh) {
+        game.world.checkForEnemyDeaths();
+        bh.consume(game.world.score);
+    }
+
+    @Benchmark
+    public void moveEnemy(Game game) {
+        game.world.moveEnemy();
+    }
+
+    @Benchmark
+    public void updateHUD(Game game) {
+        game.world.updateHUD();
+    }
+
+    @Benchmark
+    public void fullTick(Game game, Blackhole bh) {
+        game.world.tick();
+        bh.consume(game.world.tick);
+    }
+
+}
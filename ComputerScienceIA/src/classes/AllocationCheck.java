@@ -0,0 +1,214 @@
+package classes;
+
+import java.awt.Graphics2D;
+import java.awt.event.KeyEvent;
+import java.awt.image.BufferedImage;
+import java.lang.management.ManagementFactory;
+
+/**
+ * AllocationCheck.java - makes sure the game loop creates no new objects once
+ * it is running, so the garbage collector never pauses a frame
+ *
+ * Ticks and frames are measured separately with the thread allocation
+ * counters of this thread and of the renderer's band threads. The world
+ * keeps playing between frames (the camera scrolls, enemies spawn and die
+ * and lasers fly), so each frame draws a different state. The scripted key
+ * presses go through a GameLoop and each frame reads the states the loop
+ * published, as in the game. Frames are drawn into an image, so no display
+ * is needed.
+ *
+ * @author Darwin
+ */
+public class AllocationCheck {
+
+    // width and height of the image frames are drawn into
+    private static final int WIDTH = World.X_CENTER * 2;
+    private static final int HEIGHT = World.Y_CENTER * 2;
+    // number of rounds measured after the warmup (every one must be clean)
+    private static final int ROUNDS = 3;
+    // seed of the games played (the same on every run, so a failure can be
+    // repeated)
+    private static final long SEED = 1;
+
+    // the simulated world, the loop that ticks it and the objects used to
+    // draw it
+    private final World world;
+    private final StateBuffer states = new StateBuffer();
+    private final GameLoop loop;
+    private final WorldState prevState = new WorldState();
+    private final WorldState currState = new WorldState();
+    private final WorldRenderer renderer = new WorldRenderer();
+    private final BufferedImage image = new BufferedImage(WIDTH, HEIGHT,
+            BufferedImage.TYPE_INT_RGB);
+    private final Graphics2D g2d = image.createGraphics();
+    // reads how many bytes a thread has allocated
+    private final com.sun.management.ThreadMXBean threads;
+    // the renderer's band threads (their allocations are counted too)
+    private final long[] bandIds;
+    // number of ticks and frames that are measured
+    private final int iterations;
+    // number of ticks and frames run before measuring
+    private final int warmup;
+    // bytes allocated by the ticks and frames of the last round
+    private long tickBytes;
+    private long frameBytes;
+
+    /**
+     * constructor for a check
+     *
+     * @param iterations number of ticks and frames to measure
+     * @param warmup number of ticks and frames to run before measuring
+     * @param enemyAmount number of enemies in each wave
+     */
+    public AllocationCheck(int iterations, int warmup, int enemyAmount) {
+        this.iterations = iterations;
+        this.warmup = warmup;
+        world = new World(enemyAmount, SEED);
+        // the phase timing and its overlay are checked as well
+        FrameProfiler profiler = new FrameProfiler();
+        world.setProfiler(profiler);
+        // the world is drawn, so it has sparks and exhaust
+        world.setParticles(new Particles());
+        // the loop is not started, each tick is run by step
+        loop = new GameLoop(world, states);
+        renderer.overlay = profiler;
+        threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        threads.setThreadAllocatedMemoryEnabled(true);
+        bandIds = renderer.getThreadIds();
+    }
+
+    /**
+     * Runs the check and prints the bytes allocated
+     *
+     * @return true if neither ticks nor frames allocated anything
+     */
+    public boolean run() {
+        world.load();
+        // run the loop long enough for the JIT and every array to settle
+        for (int i = 0; i < warmup; i++) {
+            step(i);
+            frame(i);
+            // the counters are read as often as when measuring, so reading
+            // them has settled as well
+            allocated();
+        }
+        boolean passed = true;
+        for (int round = 1; round <= ROUNDS; round++) {
+            measureRound(round);
+            // report the results
+            System.out.println("round " + round + ": " + iterations
+                    + " ticks allocated " + tickBytes + " bytes, "
+                    + iterations + " frames allocated " + frameBytes + " bytes");
+            passed &= tickBytes == 0 && frameBytes == 0;
+        }
+        System.out.println(passed ? "allocation check passed"
+                : "allocation check FAILED");
+        renderer.close();
+        return passed;
+    }
+
+    /**
+     * Plays a round of ticks, drawing a frame after each one, and measures
+     * the bytes the ticks and the frames allocated
+     *
+     * @param round the measurement round (keeps the scripted input going)
+     */
+    private void measureRound(int round) {
+        long overhead = overhead();
+        tickBytes = 0;
+        frameBytes = 0;
+        for (int i = 0; i < iterations; i++) {
+            int n = warmup + (round - 1) * iterations + i;
+            long before = allocated();
+            boolean restarted = step(n);
+            long ticked = allocated();
+            // restarting a lost game is not part of the steady state
+            if (!restarted) {
+                tickBytes += Math.max(0, ticked - before - overhead);
+            }
+            frame(n);
+            frameBytes += Math.max(0, allocated() - ticked - overhead);
+        }
+    }
+
+    /**
+     * Advances the world by one tick with scripted input (the drone hovers,
+     * turns and fires in both directions)
+     *
+     * @param i the tick number
+     * @return true if the game was lost and had to be restarted
+     */
+    private boolean step(int i) {
+        switch (i % 40) {
+            case 0:
+                loop.keyPressed(KeyEvent.VK_W);
+                break;
+            case 10:
+                loop.keyReleased(KeyEvent.VK_W);
+                loop.keyPressed(KeyEvent.VK_A);
+                break;
+            case 15:
+                loop.keyReleased(KeyEvent.VK_A);
+                loop.keyPressed(KeyEvent.VK_LEFT);
+                break;
+            case 16:
+                loop.keyReleased(KeyEvent.VK_LEFT);
+                break;
+            case 25:
+                loop.keyPressed(KeyEvent.VK_D);
+                loop.keyPressed(KeyEvent.VK_RIGHT);
+                break;
+            case 30:
+                loop.keyReleased(KeyEvent.VK_D);
+                loop.keyReleased(KeyEvent.VK_RIGHT);
+                break;
+            default:
+                break;
+        }
+        loop.tick();
+        // a lost game is restarted immediately
+        boolean restarted = world.lost;
+        if (restarted) {
+            world.load();
+        }
+        // the ammo is topped up so the drone keeps firing
+        world.ammo = Math.max(world.ammo, 1);
+        return restarted;
+    }
+
+    /**
+     * Draws one frame between the two latest ticks (a little further along
+     * each time)
+     *
+     * @param i the frame number
+     */
+    private void frame(int i) {
+        states.read(prevState, currState);
+        renderer.draw(g2d, prevState, currState, (i % 5) / 4.0, true);
+    }
+
+    /**
+     * retrieve the bytes the current thread and the band threads have
+     * allocated so far
+     *
+     * @return the bytes allocated
+     */
+    private long allocated() {
+        long bytes = threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+        for (long id : bandIds) {
+            bytes += threads.getThreadAllocatedBytes(id);
+        }
+        return bytes;
+    }
+
+    /**
+     * Measures the bytes allocated by reading the counter itself
+     *
+     * @return the bytes allocated by one pair of reads
+     */
+    private long overhead() {
+        long before = allocated();
+        return allocated() - before;
+    }
+
+}
@@ -0,0 +1,416 @@
+package classes;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.LineUnavailableException;
+import javax.sound.sampled.SourceDataLine;
+
+/**
+ * AudioMixer.java - mixes every playing sound into one output line on its
+ * own thread
+ *
+ * Other threads only put "play sound X" commands into a lock-free queue, so
+ * playing a sound never blocks the game. The mixer thread adds the active
+ * voices together in fixed-size blocks and writes them to a single
+ * SourceDataLine. When every voice is busy, a new sound replaces the voice
+ * with the lowest priority (the oldest one if there is a tie).
+ *
+ * @author Darwin
+ */
+public class AudioMixer implements Runnable {
+
+    // output format: 44.1 kHz, 16 bit signed, mono, little-endian
+    static final float SAMPLE_RATE = 44100;
+    static final AudioFormat FORMAT = new AudioFormat(SAMPLE_RATE, 16, 1, true, false);
+    // default number of sounds that can play at once
+    static final int DEFAULT_VOICES = 16;
+    // number of samples mixed at a time (about 6 milliseconds)
+    static final int BLOCK_SIZE = 256;
+    // number of blocks the output line can hold
+    private static final int LINE_BLOCKS = 4;
+    // number of commands that can wait in the queue
+    private static final int QUEUE_SIZE = 256;
+    // marks a voice that is not playing
+    private static final int FREE = -1;
+
+    // registered sounds (samples in the output format); the count is written
+    // last so the mixer thread never sees a sound before its samples
+    private volatile short[][] sounds = new short[0][];
+    private volatile int soundCount = 0;
+    // voice variables
+    private final int[] voiceSound;
+    private final int[] voicePosition;
+    private final float[] voiceGain;
+    private final int[] voicePriority;
+    private final long[] voiceStart;
+    private long started = 0;
+    // number of voices playing, for other threads to read
+    private volatile int active = 0;
+    // mixing buffers
+    private final int[] mix = new int[BLOCK_SIZE];
+    private final byte[] out = new byte[BLOCK_SIZE * 2];
+    // the lock-free command queue
+    private final CommandQueue commands = new CommandQueue(QUEUE_SIZE);
+    // the output line and the mixer thread
+    private SourceDataLine line;
+    private Thread thread;
+    private volatile boolean running = false;
+
+    /**
+     * Default Constructor
+     */
+    public AudioMixer() {
+        this(DEFAULT_VOICES);
+    }
+
+    /**
+     * Constructor with a custom number of voices
+     *
+     * @param voices number of sounds that can play at once
+     */
+    public AudioMixer(int voices) {
+        voiceSound = new int[Math.max(1, voices)];
+        voicePosition = new int[voiceSound.length];
+        voiceGain = new float[voiceSound.length];
+        voicePriority = new int[voiceSound.length];
+        voiceStart = new long[voiceSound.length];
+        Arrays.fill(voiceSound, FREE);
+    }
+
+    /**
+     * Adds a sound that can be played later
+     *
+     * @param pcm the decoded sound
+     * @return the sound's number
+     */
+    synchronized int register(AudioPlayer.Pcm pcm) {
+        short[][] grown = Arrays.copyOf(sounds, soundCount + 1);
+        grown[soundCount] = convert(pcm);
+        sounds = grown;
+        return soundCount++;
+    }
+
+    /**
+     * Opens the output line and starts the mixer thread
+     *
+     * @throws LineUnavailableException if no output line can be opened
+     */
+    public synchronized void start() throws LineUnavailableException {
+        if (running) {
+            return;
+        }
+        line = AudioSystem.getSourceDataLine(FORMAT);
+        line.open(FORMAT, BLOCK_SIZE * 2 * LINE_BLOCKS);
+        line.start();
+        running = true;
+        thread = new Thread(this, "audio mixer");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MAX_PRIORITY);
+        thread.start();
+    }
+
+    /**
+     * Stops the mixer thread and releases the output line
+     */
+    public synchronized void close() {
+        running = false;
+        if (thread != null) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            thread = null;
+        }
+        if (line != null) {
+            line.stop();
+            line.close();
+            line = null;
+        }
+    }
+
+    /**
+     * Asks the mixer to play a sound (never blocks; the request is dropped
+     * if the queue is full)
+     *
+     * @param sound the sound's number
+     * @param priority higher priority sounds replace lower priority ones
+     * @param gain volume of the sound (1 is unchanged)
+     * @return false if the request was dropped
+     */
+    public boolean play(int sound, int priority, float gain) {
+        return commands.offer(pack(sound, priority, gain), System.nanoTime());
+    }
+
+    /**
+     * retrieve the number of voices currently playing
+     *
+     * @return the number of active voices
+     */
+    public int activeVoices() {
+        return active;
+    }
+
+    /**
+     * The mixing loop
+     */
+    @Override
+    public void run() {
+        while (running) {
+            // start any sounds that were asked for
+            long command;
+            while ((command = commands.poll()) != CommandQueue.EMPTY) {
+                startVoice(command, commands.polledNanos);
+            }
+            mixBlock();
+            active = countVoices();
+            // writing blocks until the line has room, which paces the loop
+            line.write(out, 0, out.length);
+        }
+        line.drain();
+    }
+
+    /**
+     * Starts a voice for a play command, replacing a lower priority voice if
+     * all of them are busy
+     *
+     * @param command the packed command
+     * @param queuedAt the time the command was queued
+     */
+    private void startVoice(long command, long queuedAt) {
+        int sound = (int) (command >>> 48);
+        int priority = (int) ((command >>> 32) & 0xFFFF);
+        float gain = Float.intBitsToFloat((int) command);
+        if (sound >= soundCount) {
+            return;
+        }
+        // pick a free voice, or the weakest voice that is playing
+        int chosen = -1;
+        for (int v = 0; v < voiceSound.length; v++) {
+            if (voiceSound[v] == FREE) {
+                chosen = v;
+                break;
+            }
+            if (chosen == -1 || voicePriority[v] < voicePriority[chosen]
+                    || (voicePriority[v] == voicePriority[chosen]
+                    && voiceStart[v] < voiceStart[chosen])) {
+                chosen = v;
+            }
+        }
+        // a voice is only stolen by a sound that is at least as important
+        if (voiceSound[chosen] != FREE && voicePriority[chosen] > priority) {
+            return;
+        }
+        boolean stolen = voiceSound[chosen] != FREE;
+        voiceSound[chosen] = sound;
+        voicePosition[chosen] = 0;
+        voiceGain[chosen] = gain;
+        voicePriority[chosen] = priority;
+        voiceStart[chosen] = started++;
+        // the new voice is heard once the samples already in the line play
+        long bufferedFrames = (line.getBufferSize() - line.available())
+                / FORMAT.getFrameSize();
+        GameEvents.voiceStarted(sound, System.nanoTime() - queuedAt,
+                (long) (bufferedFrames * 1e9 / SAMPLE_RATE), stolen);
+    }
+
+    /**
+     * Counts the voices that are playing
+     *
+     * @return the number of active voices
+     */
+    private int countVoices() {
+        int count = 0;
+        for (int s : voiceSound) {
+            if (s != FREE) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Adds the active voices together into the output buffer
+     */
+    private void mixBlock() {
+        Arrays.fill(mix, 0);
+        for (int v = 0; v < voiceSound.length; v++) {
+            if (voiceSound[v] == FREE) {
+                continue;
+            }
+            short[] samples = sounds[voiceSound[v]];
+            int position = voicePosition[v];
+            int length = Math.min(BLOCK_SIZE, samples.length - position);
+            float gain = voiceGain[v];
+            for (int i = 0; i < length; i++) {
+                mix[i] += (int) (samples[position + i] * gain);
+            }
+            voicePosition[v] = position + length;
+            // the voice is freed once its sound has finished
+            if (voicePosition[v] >= samples.length) {
+                voiceSound[v] = FREE;
+            }
+        }
+        // clip the mix to 16 bits and store it little-endian
+        for (int i = 0; i < BLOCK_SIZE; i++) {
+            int sample = Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, mix[i]));
+            out[i * 2] = (byte) sample;
+            out[i * 2 + 1] = (byte) (sample >> 8);
+        }
+    }
+
+    /**
+     * Converts decoded samples into the mixer's format (mono, 44.1 kHz)
+     *
+     * @param pcm the decoded sound
+     * @return the converted samples
+     */
+    static short[] convert(AudioPlayer.Pcm pcm) {
+        AudioFormat f = pcm.format;
+        int channels = f.getChannels();
+        int bytes = f.getSampleSizeInBits() / 8;
+        int frameSize = channels * bytes;
+        int frames = pcm.data.length / frameSize;
+        // read the samples, mixing the channels down to mono
+        float[] mono = new float[frames];
+        for (int i = 0; i < frames; i++) {
+            float sum = 0;
+            for (int c = 0; c < channels; c++) {
+                sum += readSample(pcm.data, i * frameSize + c * bytes, bytes,
+                        f.isBigEndian());
+            }
+            mono[i] = sum / channels;
+        }
+        // resample to the output rate with linear interpolation
+        double step = f.getSampleRate() / SAMPLE_RATE;
+        int length = (int) (frames / step);
+        short[] result = new short[length];
+        for (int i = 0; i < length; i++) {
+            double p = i * step;
+            int a = (int) p;
+            int b = Math.min(a + 1, frames - 1);
+            double t = p - a;
+            result[i] = (short) Math.round(mono[a] + (mono[b] - mono[a]) * t);
+        }
+        return result;
+    }
+
+    /**
+     * Reads one signed sample as a 16 bit value
+     *
+     * @param data the sample bytes
+     * @param offset where the sample starts
+     * @param bytes number of bytes in a sample
+     * @param bigEndian true if the most significant byte comes first
+     * @return the sample scaled to 16 bits
+     */
+    private static int readSample(byte[] data, int offset, int bytes, boolean bigEndian) {
+        if (bytes == 1) {
+            return data[offset] << 8;
+        }
+        // only the two most significant bytes are kept
+        int hi = bigEndian ? offset : offset + bytes - 1;
+        int lo = bigEndian ? offset + 1 : offset + bytes - 2;
+        return (data[hi] << 8) | (data[lo] & 0xFF);
+    }
+
+    /**
+     * Packs a play command into one long
+     *
+     * @param sound the sound's number
+     * @param priority the sound's priority
+     * @param gain the sound's volume
+     * @return the packed command
+     */
+    private static long pack(int sound, int priority, float gain) {
+        return ((long) (sound & 0xFFFF) << 48)
+                | ((long) (priority & 0xFFFF) << 32)
+                | (Float.floatToIntBits(gain) & 0xFFFFFFFFL);
+    }
+
+    /**
+     * CommandQueue - a bounded lock-free queue of longs that any number of
+     * threads can add to and one thread takes from
+     */
+    static final class CommandQueue {
+
+        // returned by poll when the queue is empty
+        static final long EMPTY = -1;
+
+        private final AtomicLongArray values;
+        // time each value was added
+        private final AtomicLongArray times;
+        // turn number each slot is waiting for
+        private final AtomicLongArray turns;
+        private final int mask;
+        private final AtomicLong tail = new AtomicLong();
+        private long head = 0;
+        // time the value returned by the last poll was added
+        long polledNanos = 0;
+
+        /**
+         * constructor for a queue
+         *
+         * @param size number of slots (rounded up to a power of two)
+         */
+        CommandQueue(int size) {
+            int capacity = Integer.highestOneBit(Math.max(2, size - 1)) << 1;
+            values = new AtomicLongArray(capacity);
+            times = new AtomicLongArray(capacity);
+            turns = new AtomicLongArray(capacity);
+            mask = capacity - 1;
+            for (int i = 0; i < capacity; i++) {
+                turns.set(i, i);
+            }
+        }
+
+        /**
+         * Adds a value (safe to call from any thread)
+         *
+         * @param value the value to add (must not be EMPTY)
+         * @param nanos the time the value is added
+         * @return false if the queue is full
+         */
+        boolean offer(long value, long nanos) {
+            while (true) {
+                long t = tail.get();
+                int slot = (int) t & mask;
+                long turn = turns.get(slot);
+                if (turn == t) {
+                    // the slot is free for this position, try to claim it
+                    if (tail.compareAndSet(t, t + 1)) {
+                        values.set(slot, value);
+                        times.set(slot, nanos);
+                        turns.set(slot, t + 1);
+                        return true;
+                    }
+                } else if (turn < t) {
+                    // the slot still holds a value that has not been taken
+                    return false;
+                }
+            }
+        }
+
+        /**
+         * Takes the oldest value (only the mixer thread calls this)
+         *
+         * @return the value, or EMPTY if the queue is empty
+         */
+        long poll() {
+            int slot = (int) head & mask;
+            if (turns.get(slot) != head + 1) {
+                return EMPTY;
+            }
+            long value = values.get(slot);
+            polledNanos = times.get(slot);
+            // the slot becomes free for the value one lap later
+            turns.set(slot, head + mask + 1);
+            head++;
+            return value;
+        }
+    }
+
+}
@@ -1,32 +1,391 @@
 package classes;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.LockSupport;
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
 import javax.sound.sampled.AudioSystem;
 import javax.sound.sampled.Clip;
 
 /**
  * AudioPlayer.java - Plays sound effects from mp3 files
  *
+ * Each sound is decoded once and kept in memory. Sounds are played through
+ * the software mixer when an output line is available, otherwise through a
+ * small pool of clips per sound that are opened in advance and reused.
+ *
+ * Playing a sound never blocks the caller (the game's simulation thread).
+ * Mixed sounds are queued for the mixer thread, and clips are started on
+ * an audio thread of their own. A sound that was not loaded in advance is
+ * loaded and played on the audio thread too.
+ *
  * @author Darwin
  */
-public class AudioPlayer {
+public class AudioPlayer implements Runnable {
+
+    // default number of copies of one sound that can play at the same time
+    static final int DEFAULT_POLYPHONY = 4;
+
+    // priority and volume used when none are given
+    static final int DEFAULT_PRIORITY = 1;
+    static final float DEFAULT_GAIN = 1f;
+    // number of clip commands that can wait for the audio thread
+    private static final int QUEUE_SIZE = 64;
+
+    // number of clips opened for each sound
+    private final int polyphony;
+    // the software mixer (null when clips are used instead)
+    private volatile AudioMixer mixer;
+    // true once starting the mixer has been attempted
+    private boolean mixerTried = false;
+    // sounds that have already been decoded, by file and by number
+    private final Map<File, Sound> sounds = new ConcurrentHashMap<>();
+    private volatile Sound[] numbered = new Sound[0];
+    // numbers of the sounds to play with clips, and sounds to load and then
+    // play (both taken by the audio thread)
+    private final AudioMixer.CommandQueue clipCommands
+            = new AudioMixer.CommandQueue(QUEUE_SIZE);
+    private final Queue<Request> requests = new ConcurrentLinkedQueue<>();
+    // the thread that starts clips and loads sounds
+    private final Thread thread;
+    private volatile boolean running = true;
 
     /**
-     * Plays a sound effect from a file
+     * Default Constructor
+     */
+    public AudioPlayer() {
+        this(DEFAULT_POLYPHONY);
+    }
+
+    /**
+     * Constructor with a custom polyphony limit
      *
-     * @param given sound file
+     * @param polyphony number of copies of one sound that can play at once
      */
-    void playSound(File sound) {
+    public AudioPlayer(int polyphony) {
+        this.polyphony = Math.max(1, polyphony);
+        thread = new Thread(this, "audio player");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Decodes a sound file and opens its clips so it can be played later
+     * without touching the disk
+     *
+     * @param sound the sound file
+     */
+    synchronized void load(File sound) {
+        if (!sounds.containsKey(sound)) {
+            int number = numbered.length;
+            Sound s;
+            try {
+                startMixer();
+                Pcm pcm = decode(sound);
+                if (mixer != null) {
+                    // the mixer keeps its own copy of the samples
+                    s = new Sound(sound.getName(), number, mixer.register(pcm));
+                } else {
+                    s = new Sound(sound.getName(), number, pcm, polyphony);
+                }
+            } catch (Exception e) {
+                // any errors become printed
+                System.out.println(e);
+                // the sound is remembered (silent) so it is not loaded again
+                s = new Sound(sound.getName(), number, -1);
+            }
+            // the number is written before the sound can be found by file
+            Sound[] grown = Arrays.copyOf(numbered, number + 1);
+            grown[number] = s;
+            numbered = grown;
+            sounds.put(sound, s);
+        }
+    }
+
+    /**
+     * Starts the software mixer the first time a sound is loaded, falling
+     * back to clips if no output line can be opened
+     */
+    private void startMixer() {
+        if (mixerTried) {
+            return;
+        }
+        mixerTried = true;
         try {
-            // create an instance of a clip
-            Clip clip = AudioSystem.getClip();
-            // sound file is set as the clip
-            clip.open(AudioSystem.getAudioInputStream(sound));
-            // clip starts playing
-            clip.start();
+            mixer = new AudioMixer();
+            mixer.start();
         } catch (Exception e) {
             // any errors become printed
             System.out.println(e);
+            mixer = null;
+        }
+    }
+
+    /**
+     * Plays a sound effect from a file
+     *
+     * @param sound the sound file
+     */
+    void playSound(File sound) {
+        playSound(sound, DEFAULT_PRIORITY, DEFAULT_GAIN);
+    }
+
+    /**
+     * Plays a sound effect from a file with a priority and volume
+     *
+     * @param sound the sound file
+     * @param priority higher priority sounds replace lower priority ones when
+     * too many sounds are playing
+     * @param gain volume of the sound (1 is unchanged)
+     */
+    void playSound(File sound, int priority, float gain) {
+        Sound s = sounds.get(sound);
+        if (s == null) {
+            // sounds are decoded the first time they are played, on the
+            // audio thread
+            requests.offer(new Request(sound, priority, gain));
+            LockSupport.unpark(thread);
+        } else {
+            play(s, priority, gain);
         }
     }
+
+    /**
+     * Hands a loaded sound to the mixer thread or the audio thread (never
+     * waits for the sound system)
+     *
+     * @param s the sound
+     * @param priority the sound's priority
+     * @param gain volume of the sound (1 is unchanged)
+     */
+    private void play(Sound s, int priority, float gain) {
+        AudioMixer m = mixer;
+        if (s.mixerSound >= 0 && m != null) {
+            // the mixer thread does the work, this only queues a command
+            boolean queued = m.play(s.mixerSound, priority, gain);
+            GameEvents.soundPlayed(s.name, priority, gain, true, queued);
+        } else if (s.clips.length > 0) {
+            // the clip is started on the audio thread
+            boolean queued = clipCommands.offer(s.number, System.nanoTime());
+            LockSupport.unpark(thread);
+            GameEvents.soundPlayed(s.name, priority, gain, false, queued);
+        }
+    }
+
+    /**
+     * The audio thread's loop: loads the sounds asked for and starts the
+     * clips queued by playSound
+     */
+    @Override
+    public void run() {
+        while (running) {
+            Request r;
+            while ((r = requests.poll()) != null) {
+                load(r.sound);
+                play(sounds.get(r.sound), r.priority, r.gain);
+            }
+            long command;
+            while ((command = clipCommands.poll()) != AudioMixer.CommandQueue.EMPTY) {
+                try {
+                    numbered[(int) command].play();
+                } catch (RuntimeException e) {
+                    // any errors become printed
+                    System.out.println(e);
+                }
+            }
+            // wait for playSound to ask for more
+            LockSupport.park(this);
+        }
+    }
+
+    /**
+     * retrieve the number of sounds the mixer is playing (never waits for
+     * a sound to be played)
+     *
+     * @return the number of active voices (0 when clips are used)
+     */
+    int activeVoices() {
+        AudioMixer m = mixer;
+        return m == null ? 0 : m.activeVoices();
+    }
+
+    /**
+     * Stops the audio thread, closes every clip, stops the mixer and
+     * forgets every sound
+     */
+    void close() {
+        running = false;
+        LockSupport.unpark(thread);
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        closeSounds();
+    }
+
+    /**
+     * Closes every clip, stops the mixer and forgets every sound
+     */
+    private synchronized void closeSounds() {
+        for (Sound s : sounds.values()) {
+            s.close();
+        }
+        sounds.clear();
+        numbered = new Sound[0];
+        if (mixer != null) {
+            mixer.close();
+            mixer = null;
+        }
+        mixerTried = false;
+    }
+
+    /**
+     * Reads a whole sound file into signed PCM samples
+     *
+     * @param sound the sound file
+     * @return the decoded samples
+     * @throws Exception if the file cannot be read or decoded
+     */
+    static Pcm decode(File sound) throws Exception {
+        try (AudioInputStream in = AudioSystem.getAudioInputStream(sound)) {
+            AudioInputStream pcm = in;
+            AudioFormat format = in.getFormat();
+            // compressed sounds are converted to 16 bit signed samples
+            if (format.getEncoding() != AudioFormat.Encoding.PCM_SIGNED) {
+                format = new AudioFormat(AudioFormat.Encoding.PCM_SIGNED,
+                        format.getSampleRate(), 16, format.getChannels(),
+                        format.getChannels() * 2, format.getSampleRate(), false);
+                pcm = AudioSystem.getAudioInputStream(format, in);
+            }
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = pcm.read(buffer)) > 0) {
+                bytes.write(buffer, 0, read);
+            }
+            return new Pcm(format, bytes.toByteArray());
+        }
+    }
+
+    /**
+     * Pcm - decoded samples and the format they are in
+     */
+    static final class Pcm {
+
+        final AudioFormat format;
+        final byte[] data;
+
+        Pcm(AudioFormat format, byte[] data) {
+            this.format = format;
+            this.data = data;
+        }
+    }
+
+    /**
+     * Request - a sound to load and then play
+     */
+    private static final class Request {
+
+        final File sound;
+        final int priority;
+        final float gain;
+
+        Request(File sound, int priority, float gain) {
+            this.sound = sound;
+            this.priority = priority;
+            this.gain = gain;
+        }
+    }
+
+    /**
+     * Sound - a decoded sound and the mixer voice or clips it plays through
+     */
+    private static final class Sound {
+
+        // the sound's file name
+        final String name;
+        // the sound's number in the player
+        final int number;
+        // the sound's number in the mixer (-1 when clips are used)
+        final int mixerSound;
+        // clips opened with the sound's samples
+        private final Clip[] clips;
+        // clip to use next (the one that started playing the longest ago)
+        private int next = 0;
+
+        /**
+         * Creates a sound that is played by the mixer
+         *
+         * @param name the sound's file name
+         * @param number the sound's number in the player
+         * @param mixerSound the sound's number in the mixer (-1 for a sound
+         * that could not be loaded, which is never heard)
+         */
+        Sound(String name, int number, int mixerSound) {
+            this.name = name;
+            this.number = number;
+            this.mixerSound = mixerSound;
+            clips = new Clip[0];
+        }
+
+        /**
+         * Opens the clips for a sound
+         *
+         * @param name the sound's file name
+         * @param number the sound's number in the player
+         * @param pcm the decoded sound
+         * @param polyphony number of clips to open
+         * @throws Exception if a clip cannot be opened
+         */
+        Sound(String name, int number, Pcm pcm, int polyphony) throws Exception {
+            this.name = name;
+            this.number = number;
+            mixerSound = -1;
+            clips = new Clip[polyphony];
+            try {
+                for (int i = 0; i < clips.length; i++) {
+                    clips[i] = AudioSystem.getClip();
+                    clips[i].open(pcm.format, pcm.data, 0, pcm.data.length);
+                }
+            } catch (Exception e) {
+                // clips that were opened are released before giving up
+                close();
+                throw e;
+            }
+        }
+
+        /**
+         * Plays the sound on the next clip in turn, which is either free or
+         * the clip that started playing the longest time ago (only the audio
+         * thread calls this)
+         */
+        void play() {
+            Clip clip = clips[next];
+            next = (next + 1) % clips.length;
+            if (clip.isRunning()) {
+                clip.stop();
+            }
+            clip.setFramePosition(0);
+            clip.start();
+        }
+
+        /**
+         * Releases the clips
+         */
+        void close() {
+            for (Clip c : clips) {
+                if (c != null) {
+                    c.close();
+                }
+            }
+        }
+    }
+
 }
@@ -0,0 +1,198 @@
+package classes;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.geom.Rectangle2D;
+
+/**
+ * BackgroundLayer.java - draws the scenery that never moves (stars, buildings
+ * and the zone outline) once into image tiles and copies the tiles to the
+ * screen every frame
+ *
+ * The world is split into square tiles. Only enough tiles to cover the view
+ * are kept: each world tile always uses the same slot (its column and row
+ * wrapped around), so when the camera moves, the tiles that scroll off one
+ * side are redrawn as the tiles coming in on the other side. The tiles are
+ * pixel buffers like the frame they are copied into, so the stars are
+ * plotted straight into their pixels. The scenery in a tile comes from the
+ * chunks of a Scenery cache, so only the part of the zone near the camera
+ * is ever made.
+ *
+ * @author Darwin
+ */
+public class BackgroundLayer {
+
+    // width and height of a tile in pixels
+    static final int TILE_SIZE = 256;
+    // marks a slot that does not hold a tile yet
+    private static final int EMPTY = Integer.MIN_VALUE;
+    // star colour (Color.GRAY)
+    private static final int STAR_RGB = 0x808080;
+
+    // slot columns and rows (enough to cover the view at any offset)
+    private final int columns;
+    private final int rows;
+    // the image in each slot and the world tile it holds
+    private final PixelBuffer[] tiles;
+    private final int[] tileColumn;
+    private final int[] tileRow;
+    // the scenery the tiles are drawn from
+    private final Scenery scenery = new Scenery();
+    private Rectangle2D.Double zone;
+    // objects reused while drawing a tile
+    private final Rectangle2D.Double building = new Rectangle2D.Double();
+    private final Rectangle2D.Double tileArea = new Rectangle2D.Double();
+
+    /**
+     * constructor for a layer that covers a view of a given size
+     *
+     * @param viewWidth width of the view in pixels
+     * @param viewHeight height of the view in pixels
+     */
+    public BackgroundLayer(int viewWidth, int viewHeight) {
+        // a view that is not lined up with the tiles overlaps one more
+        columns = viewWidth / TILE_SIZE + 2;
+        rows = viewHeight / TILE_SIZE + 2;
+        tiles = new PixelBuffer[columns * rows];
+        tileColumn = new int[tiles.length];
+        tileRow = new int[tiles.length];
+        clear();
+    }
+
+    /**
+     * Forgets which tiles the slots hold so they are all drawn again
+     */
+    public void clear() {
+        for (int i = 0; i < tiles.length; i++) {
+            tileColumn[i] = EMPTY;
+            tileRow[i] = EMPTY;
+        }
+    }
+
+    /**
+     * Draws the part of the background the camera can see (the graphics must
+     * not be translated yet)
+     *
+     * @param g2d the graphics to draw on
+     * @param state the state that holds the scenery
+     * @param camX x coordinate of the view's top left corner
+     * @param camY y coordinate of the view's top left corner
+     * @param width width of the view
+     * @param height height of the view
+     */
+    public void draw(Graphics2D g2d, WorldState state, int camX, int camY,
+            int width, int height) {
+        // a new game has new scenery, so every tile is drawn again
+        if (state.scenerySeed != scenery.getSeed() || state.zone != zone) {
+            zone = state.zone;
+            scenery.reset(zone, state.scenerySeed);
+            clear();
+        }
+        int firstColumn = Math.floorDiv(camX, TILE_SIZE);
+        int firstRow = Math.floorDiv(camY, TILE_SIZE);
+        int lastColumn = Math.floorDiv(camX + width - 1, TILE_SIZE);
+        int lastRow = Math.floorDiv(camY + height - 1, TILE_SIZE);
+        for (int row = firstRow; row <= lastRow; row++) {
+            for (int column = firstColumn; column <= lastColumn; column++) {
+                // tiles with nothing in them are left black
+                if (!occupied(column, row)) {
+                    continue;
+                }
+                int slot = Math.floorMod(row, rows) * columns
+                        + Math.floorMod(column, columns);
+                if (tiles[slot] == null) {
+                    tiles[slot] = new PixelBuffer(TILE_SIZE, TILE_SIZE);
+                }
+                PixelBuffer tile = tiles[slot];
+                if (tileColumn[slot] != column || tileRow[slot] != row) {
+                    drawTile(tile, column, row);
+                    tileColumn[slot] = column;
+                    tileRow[slot] = row;
+                }
+                g2d.drawImage(tile.getImage(), column * TILE_SIZE - camX,
+                        row * TILE_SIZE - camY, null);
+            }
+        }
+    }
+
+    /**
+     * Checks if a tile overlaps the playing zone (the outline is included)
+     *
+     * @param column the tile's column
+     * @param row the tile's row
+     * @return true if the tile may have scenery in it
+     */
+    private boolean occupied(int column, int row) {
+        double x = column * (double) TILE_SIZE;
+        double y = row * (double) TILE_SIZE;
+        return x <= zone.getMaxX() + 1 && x + TILE_SIZE >= zone.getMinX() - 1
+                && y <= zone.getMaxY() + 1 && y + TILE_SIZE >= zone.getMinY() - 1;
+    }
+
+    /**
+     * Draws the scenery of one world tile into an image
+     *
+     * @param tile the image to draw into
+     * @param column the tile's column
+     * @param row the tile's row
+     */
+    private void drawTile(PixelBuffer tile, int column, int row) {
+        int x = column * TILE_SIZE;
+        int y = row * TILE_SIZE;
+        // clear the tile
+        tile.fill(0);
+        Graphics2D g2d = tile.getGraphics();
+        // the tile is drawn in world coordinates
+        g2d.translate(-x, -y);
+        // set color to gray
+        g2d.setColor(Color.GRAY);
+        // one extra pixel on each side catches lines on the tile's edge
+        tileArea.setRect(x - 1, y - 1, TILE_SIZE + 2, TILE_SIZE + 2);
+        // buildings reach into the chunks to the right of the one they are in
+        int firstColumn = Math.floorDiv(x - 1 - Scenery.MAX_BUILDING_HEIGHT / 2,
+                Scenery.CHUNK_SIZE);
+        int lastColumn = Math.floorDiv(x + TILE_SIZE + 1, Scenery.CHUNK_SIZE);
+        int firstRow = Math.floorDiv(y - 1, Scenery.CHUNK_SIZE);
+        int lastRow = Math.floorDiv(y + TILE_SIZE + 1, Scenery.CHUNK_SIZE);
+        for (int cy = firstRow; cy <= lastRow; cy++) {
+            for (int cx = firstColumn; cx <= lastColumn; cx++) {
+                int s = scenery.chunk(cx, cy);
+                if (s >= 0) {
+                    drawChunk(tile, s, x, y);
+                }
+            }
+        }
+        // color is set to white
+        g2d.setColor(Color.WHITE);
+        // draw boundaries of playing zone
+        g2d.draw(zone);
+        // the graphics are put back for the next tile
+        g2d.translate(x, y);
+    }
+
+    /**
+     * Draws the stars and buildings of one chunk that are in the tile
+     *
+     * @param tile the tile (its graphics are in world coordinates)
+     * @param s the chunk's slot
+     * @param x x coordinate of the tile's top left corner
+     * @param y y coordinate of the tile's top left corner
+     */
+    private void drawChunk(PixelBuffer tile, int s, int x, int y) {
+        // the stars are plotted into the tile's pixels
+        int first = s * Scenery.STARS_PER_CHUNK;
+        tile.plot(scenery.starX, scenery.starY, first, first + scenery.starCount[s],
+                x, y, STAR_RGB);
+        // draw the buildings in the tile
+        Graphics2D g2d = tile.getGraphics();
+        for (int k = s * Scenery.BUILDINGS_PER_CHUNK,
+                end = k + scenery.buildingCount[s]; k < end; k++) {
+            building.setRect(scenery.buildingX[k], scenery.buildingY[k],
+                    scenery.buildingWidth[k], scenery.buildingHeight[k]);
+            if (building.intersects(tileArea)) {
+                g2d.draw(building);
+            }
+        }
+    }
+
+}
@@ -1,7 +1,5 @@
 package classes;
 
-import java.awt.Shape;
-import java.awt.geom.AffineTransform;
 import java.awt.geom.Path2D;
 
 /**
@@ -97,21 +95,4 @@ public class Drone extends Path2D.Double implements Locator {
         this.yCoord = y;
     }
 
-    /**
-     * determines the updated drone shape using movement and rotation
-     *
-     * @return the updated drone shape
-     */
-    public Shape getTransformedInstance() {
-        // create a new transformed shape of the drone path
-        AffineTransform at = new AffineTransform();
-        // rotate the drone path according to the angle
-        at.rotate(Math.toRadians(angle), xCoord
-                + (getBounds().width / 2), yCoord + (getBounds().height / 2));
-        // translate the drone path
-        at.translate(xCoord, yCoord);
-        // return the newly transformed drone path
-        return createTransformedShape(at);
-    }
-
 }
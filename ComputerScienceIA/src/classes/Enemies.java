@@ -0,0 +1,236 @@
+package classes;
+
+/**
+ * Enemies.java - every enemy's components stored in primitive arrays
+ *
+ * The arrays are a pool that is reused for every wave and every game. Live
+ * enemies are kept packed at the front of the arrays (like the lasers in
+ * Projectiles), so the systems that move, hit and draw enemies run straight
+ * through the live enemies only. A slot only names an enemy until the next
+ * removal moves another enemy into it, so enemies are kept track of by id
+ * (an Enemy view names its enemy by id and finds the slot itself).
+ *
+ * @author Darwin
+ */
+public class Enemies {
+
+    // true to move enemies with the branch free loops (picked once at
+    // startup, -Dgame.kernel=scalar falls back to one enemy at a time)
+    static final boolean BATCHED = !"scalar".equals(System.getProperty("game.kernel"));
+
+    // position (top left corner)
+    final double[] x;
+    final double[] y;
+    // distance moved each tick
+    final double[] dx;
+    final double[] dy;
+    // width and height (enemies are square)
+    final double[] size;
+    // false once the enemy has been destroyed (until it is removed)
+    final boolean[] alive;
+    // number given to each enemy when it spawns (stays with the enemy when
+    // it changes slot, so the renderer can match enemies between ticks)
+    final int[] id;
+    // number of live enemies
+    int count = 0;
+    // number given to the next enemy
+    private int nextId = 0;
+
+    /**
+     * constructor for a pool of enemies
+     *
+     * @param capacity largest number of enemies alive at once
+     */
+    public Enemies(int capacity) {
+        x = new double[capacity];
+        y = new double[capacity];
+        dx = new double[capacity];
+        dy = new double[capacity];
+        size = new double[capacity];
+        alive = new boolean[capacity];
+        id = new int[capacity];
+    }
+
+    /**
+     * retrieve the largest number of enemies alive at once
+     *
+     * @return the capacity
+     */
+    public int capacity() {
+        return x.length;
+    }
+
+    /**
+     * Makes a view of an enemy that stays on that enemy when it changes slot
+     *
+     * @param enemyId the enemy's id
+     * @return the view
+     */
+    public Enemy locator(int enemyId) {
+        return new Enemy(this, enemyId);
+    }
+
+    /**
+     * Finds the slot of an enemy that has not been removed
+     *
+     * @param enemyId the enemy's id
+     * @return the enemy's slot (-1 if it has been removed)
+     */
+    int find(int enemyId) {
+        for (int k = 0; k < count; k++) {
+            if (id[k] == enemyId) {
+                return k;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Removes every enemy
+     */
+    public void clear() {
+        count = 0;
+    }
+
+    /**
+     * Brings a new enemy to life in the next free slot
+     *
+     * @param startX x coordinate of the top left corner
+     * @param startY y coordinate of the top left corner
+     * @param speed distance fallen each tick
+     * @param enemySize width and height
+     * @return the enemy's slot (-1 if the pool is full)
+     */
+    public int spawn(double startX, double startY, double speed,
+            double enemySize) {
+        if (count == x.length) {
+            return -1;
+        }
+        int k = count++;
+        x[k] = startX;
+        y[k] = startY;
+        dx[k] = 0;
+        dy[k] = speed;
+        size[k] = enemySize;
+        alive[k] = true;
+        id[k] = nextId++;
+        return k;
+    }
+
+    /**
+     * Destroys an enemy (it keeps its slot until it is removed, so the slots
+     * found by a search stay valid)
+     *
+     * @param k the enemy's slot
+     */
+    public void kill(int k) {
+        alive[k] = false;
+    }
+
+    /**
+     * Removes a destroyed enemy by moving the last enemy into its slot
+     *
+     * @param k the enemy's slot
+     * @return the slot the moved enemy came from (equal to k if no enemy
+     * was moved)
+     */
+    public int remove(int k) {
+        int last = --count;
+        x[k] = x[last];
+        y[k] = y[last];
+        dx[k] = dx[last];
+        dy[k] = dy[last];
+        size[k] = size[last];
+        alive[k] = alive[last];
+        id[k] = id[last];
+        return last;
+    }
+
+    /**
+     * Moves every enemy by its velocity with one enemy at a time loops
+     * (the fallback, chosen with -Dgame.kernel=scalar)
+     *
+     * @return the lowest bottom edge of a live enemy (for the ground check)
+     */
+    public double moveEach() {
+        return moveEach(0, count);
+    }
+
+    /**
+     * Moves a range of enemies one at a time
+     *
+     * @param from the first enemy
+     * @param to one past the last enemy
+     * @return the lowest bottom edge of a live enemy in the range
+     */
+    public double moveEach(int from, int to) {
+        double bottom = Double.NEGATIVE_INFINITY;
+        for (int k = from; k < to; k++) {
+            if (alive[k]) {
+                x[k] += dx[k];
+                y[k] += dy[k];
+                bottom = Math.max(bottom, y[k] + size[k]);
+            }
+        }
+        return bottom;
+    }
+
+    /**
+     * Moves every enemy by its velocity with loops that have no branches,
+     * so the JIT compiles them to SIMD instructions
+     *
+     * Destroyed enemies are removed before the enemies move, so every
+     * enemy in the range is alive.
+     *
+     * @return the lowest bottom edge of a live enemy (for the ground check)
+     */
+    public double moveAll() {
+        return moveAll(0, count);
+    }
+
+    /**
+     * Moves a range of enemies with the branch free loops
+     *
+     * @param from the first enemy
+     * @param to one past the last enemy
+     * @return the lowest bottom edge of an enemy in the range
+     */
+    public double moveAll(int from, int to) {
+        final double[] xs = x;
+        final double[] ys = y;
+        final double[] dxs = dx;
+        final double[] dys = dy;
+        final double[] sizes = size;
+        for (int k = from; k < to; k++) {
+            xs[k] += dxs[k];
+            ys[k] += dys[k];
+        }
+        // the ground check is a separate pass so both loops stay simple
+        double bottom = Double.NEGATIVE_INFINITY;
+        for (int k = from; k < to; k++) {
+            bottom = Math.max(bottom, ys[k] + sizes[k]);
+        }
+        return bottom;
+    }
+
+    /**
+     * Moves every enemy with the loops picked when the game started
+     *
+     * @return the lowest bottom edge of a live enemy
+     */
+    public double move() {
+        return move(0, count);
+    }
+
+    /**
+     * Moves a range of enemies with the loops picked when the game started
+     *
+     * @param from the first enemy
+     * @param to one past the last enemy
+     * @return the lowest bottom edge of a live enemy in the range
+     */
+    public double move(int from, int to) {
+        return BATCHED ? moveAll(from, to) : moveEach(from, to);
+    }
+
+}
@@ -1,38 +1,55 @@
 package classes;
 
-import java.awt.geom.Rectangle2D;
-
 /**
- * Enemy.java - variables and methods for the enemies
+ * Enemy.java - a view of one enemy in the enemy component arrays
+ *
+ * It holds no state of its own, so it always agrees with the arrays. The
+ * enemy is named by its id rather than its slot, and its slot is looked up
+ * again whenever a removal has moved it, so a view kept across ticks never
+ * ends up showing a different enemy.
  *
  * @author Darwin
  */
-public class Enemy extends Rectangle2D.Double implements Locator {
+public class Enemy implements Locator {
 
-    // coordinates of the enemy
-    private double xCoord;
-    private double yCoord;
+    // the arrays holding the enemy
+    private final Enemies enemies;
+    // the enemy's id
+    private final int id;
+    // the slot the enemy was last found in (-1 once it has been removed)
+    private int slot;
 
-    // velocity variable
-    double vSpeed;
-    // death state boolean
-    boolean isDead;
-    // size integer
-    int size;
+    /**
+     * constructor for a view of an enemy
+     *
+     * @param enemies the enemy component arrays
+     * @param id the enemy's id
+     */
+    Enemy(Enemies enemies, int id) {
+        this.enemies = enemies;
+        this.id = id;
+        slot = enemies.find(id);
+    }
 
     /**
-     * constructor for creating a new enemy
+     * retrieve the enemy's id
      *
-     * @param speedMultiplier adjusts the speed of the enemy (higher number
-     * means faster speeds)
+     * @return the id
      */
-    Enemy(int speedMultiplier) {
-        // set the enemy speed to a random number
-        vSpeed = Math.pow(1.7, Math.random() * speedMultiplier);
-        // set the enemy size to a random number (40 to 80)
-        size = (int) (40 + Math.random() * 40);
-        // enemy is set as alive
-        isDead = false;
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * retrieve the enemy's current slot
+     *
+     * @return the slot (-1 if the enemy has been removed)
+     */
+    public int getIndex() {
+        if (slot >= 0 && (slot >= enemies.count || enemies.id[slot] != id)) {
+            slot = enemies.find(id);
+        }
+        return slot;
     }
 
     /**
@@ -41,15 +58,26 @@ public class Enemy extends Rectangle2D.Double implements Locator {
      * @return the size
      */
     public double getSize() {
-        return size;
+        return enemies.size[slot()];
+    }
+
+    /**
+     * retrieve the enemy's falling speed
+     *
+     * @return distance fallen each tick
+     */
+    public double getSpeed() {
+        return enemies.dy[slot()];
     }
 
     /**
-     * set the enemy state to dead
+     * check if the enemy has been destroyed
+     *
+     * @return true if the enemy is dead (or has been removed)
      */
-    public void die() {
-        // enemy becomes dead
-        isDead = true;
+    public boolean isDead() {
+        int k = getIndex();
+        return k < 0 || !enemies.alive[k];
     }
 
     /**
@@ -59,7 +87,7 @@ public class Enemy extends Rectangle2D.Double implements Locator {
      */
     @Override
     public double getX() {
-        return xCoord;
+        return enemies.x[slot()];
     }
 
     /**
@@ -69,18 +97,20 @@ public class Enemy extends Rectangle2D.Double implements Locator {
      */
     @Override
     public double getY() {
-        return yCoord;
+        return enemies.y[slot()];
     }
 
     /**
-     * updates the enemy's coordinates into the class
+     * Finds the enemy's slot, failing if it is no longer in the arrays
      *
-     * @param x the enemy's y coordinate
-     * @param y the enemy's x coordinate
+     * @return the slot
      */
-    public void updateCoordinates(double x, double y) {
-        xCoord = x;
-        yCoord = y;
+    private int slot() {
+        int k = getIndex();
+        if (k < 0) {
+            throw new IllegalStateException("enemy " + id + " has been removed");
+        }
+        return k;
     }
 
 }
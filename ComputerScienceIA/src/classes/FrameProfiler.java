@@ -0,0 +1,108 @@
+package classes;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+
+/**
+ * FrameProfiler.java - keeps a latency histogram for each phase of a tick and
+ * for drawing frames
+ *
+ * The tick phases are recorded by the simulation thread and the frame
+ * phases by whichever thread draws, so each histogram only has one writer.
+ *
+ * @author Darwin
+ */
+public class FrameProfiler {
+
+    // tick phases (in the order World.tick runs them)
+    static final int MOVE_DRONE = 0;
+    static final int MOVE_LASER = 1;
+    static final int WALL_COLLISIONS = 2;
+    static final int ENEMY_DEATHS = 3;
+    static final int MOVE_ENEMY = 4;
+    static final int UPDATE_HUD = 5;
+    static final int UPDATE_CAMERA = 6;
+    static final int TIMERS = 7;
+    static final int PARTICLES = 8;
+    // a whole tick
+    static final int TICK = 9;
+    // drawing a frame and putting it on screen
+    static final int PAINT = 10;
+    static final int PRESENT = 11;
+    // number of phases
+    static final int PHASES = 12;
+
+    // phase names as printed in the overlay and the dump
+    static final String[] NAMES = {"moveDrone", "moveLaser", "wallCollide",
+        "enemyDeaths", "moveEnemy", "updateHUD", "updateCamera", "timers",
+        "particles", "tick", "paint", "present"};
+    // percentiles that are reported
+    static final double[] FRACTIONS = {0.5, 0.99, 0.999};
+
+    // one histogram for each phase
+    private final LatencyHistogram[] phases = new LatencyHistogram[PHASES];
+
+    /**
+     * Default Constructor
+     */
+    public FrameProfiler() {
+        for (int i = 0; i < PHASES; i++) {
+            phases[i] = new LatencyHistogram();
+        }
+    }
+
+    /**
+     * Records how long a phase took
+     *
+     * @param phase the phase
+     * @param nanos the time taken in nanoseconds
+     */
+    public void record(int phase, long nanos) {
+        phases[phase].record(nanos);
+    }
+
+    /**
+     * retrieve a phase's histogram
+     *
+     * @param phase the phase
+     * @return the histogram
+     */
+    public LatencyHistogram get(int phase) {
+        return phases[phase];
+    }
+
+    /**
+     * Writes a table of every phase's percentiles to a file
+     *
+     * @param file the file to write
+     */
+    public void dump(File file) {
+        try (PrintWriter out = new PrintWriter(file, "UTF-8")) {
+            write(out);
+        } catch (IOException e) {
+            // any errors become printed
+            System.out.println(e);
+        }
+    }
+
+    /**
+     * Writes a table of every phase's percentiles
+     *
+     * @param out where the table is written
+     */
+    public void write(PrintWriter out) {
+        long[] values = new long[FRACTIONS.length];
+        out.printf("%-14s %10s %10s %10s %10s %10s %10s%n", "phase (us)",
+                "count", "mean", "p50", "p99", "p99.9", "max");
+        for (int i = 0; i < PHASES; i++) {
+            LatencyHistogram h = phases[i];
+            h.percentiles(FRACTIONS, values);
+            out.printf("%-14s %10d %10.1f %10.1f %10.1f %10.1f %10.1f%n",
+                    NAMES[i], h.getCount(), h.getMean() / 1e3, values[0] / 1e3,
+                    values[1] / 1e3, values[2] / 1e3, h.getMax() / 1e3);
+        }
+        out.flush();
+    }
+
+}
@@ -0,0 +1,123 @@
+package classes;
+
+import java.awt.BufferCapabilities;
+import java.awt.Canvas;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.ImageCapabilities;
+import java.awt.Toolkit;
+import java.awt.image.BufferStrategy;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * GameCanvas.java - draws frames directly to the screen with a buffer
+ * strategy instead of waiting for Swing to repaint
+ *
+ * @author Darwin
+ */
+@SuppressWarnings("serial")
+public class GameCanvas extends Canvas {
+
+    // number of buffers (one on screen, one being drawn)
+    private static final int BUFFERS = 2;
+    // time to wait when there is nothing to draw yet
+    private static final long IDLE_NANOS = 1_000_000L;
+
+    // where the frames come from
+    private final StateBuffer states;
+    private final WorldRenderer renderer;
+    private final FrameProfiler profiler;
+    private final WorldState prevState = new WorldState();
+    private final WorldState currState = new WorldState();
+    private BufferStrategy strategy;
+    // time taken by the last call to show, in nanoseconds
+    private volatile long presentNanos = 0;
+    // true if the HUD should be drawn
+    volatile boolean enableHUD = true;
+
+    /**
+     * constructor for a canvas
+     *
+     * @param states the buffer the simulation publishes ticks to
+     * @param renderer draws the world
+     * @param profiler records how long drawing and presenting take
+     */
+    public GameCanvas(StateBuffer states, WorldRenderer renderer,
+            FrameProfiler profiler) {
+        this.states = states;
+        this.renderer = renderer;
+        this.profiler = profiler;
+        setBackground(Color.BLACK);
+        // frames are only drawn by renderFrame
+        setIgnoreRepaint(true);
+        setFocusable(true);
+    }
+
+    /**
+     * retrieve the time taken to put the last frame on screen
+     *
+     * @return the present time in nanoseconds
+     */
+    public long getPresentNanos() {
+        return presentNanos;
+    }
+
+    /**
+     * Draws one frame and puts it on screen (called by the render loop)
+     */
+    public void renderFrame() {
+        if (!isDisplayable() || !isShowing()) {
+            // nothing can be drawn until the canvas is on screen
+            LockSupport.parkNanos(IDLE_NANOS);
+            return;
+        }
+        if (strategy == null) {
+            createStrategy();
+        }
+        long published = states.read(prevState, currState);
+        if (published < 0) {
+            LockSupport.parkNanos(IDLE_NANOS);
+            return;
+        }
+        // how far the frame is between the two ticks
+        double alpha = Math.min(1.0,
+                (System.nanoTime() - published) / (double) GameLoop.TICK_NANOS);
+        // the last present time is shown on the HUD
+        renderer.presentNanos = presentNanos;
+        do {
+            do {
+                long paintStart = System.nanoTime();
+                Graphics2D g2d = (Graphics2D) strategy.getDrawGraphics();
+                // clear the back buffer
+                g2d.setColor(Color.BLACK);
+                g2d.fillRect(0, 0, getWidth(), getHeight());
+                renderer.draw(g2d, prevState, currState, alpha, enableHUD);
+                g2d.dispose();
+                profiler.record(FrameProfiler.PAINT, System.nanoTime() - paintStart);
+                // draw again if the buffer was lost and restored while drawing
+            } while (strategy.contentsRestored());
+            // flip (or copy) the back buffer to the screen and time it
+            long start = System.nanoTime();
+            strategy.show();
+            Toolkit.getDefaultToolkit().sync();
+            presentNanos = System.nanoTime() - start;
+            profiler.record(FrameProfiler.PRESENT, presentNanos);
+        } while (strategy.contentsLost());
+    }
+
+    /**
+     * Creates the buffer strategy, asking for page flipping first
+     */
+    private void createStrategy() {
+        try {
+            createBufferStrategy(BUFFERS, new BufferCapabilities(
+                    new ImageCapabilities(true), new ImageCapabilities(true),
+                    BufferCapabilities.FlipContents.UNDEFINED));
+        } catch (Exception e) {
+            // page flipping is not available, so blitting is used instead
+            createBufferStrategy(BUFFERS);
+        }
+        strategy = getBufferStrategy();
+    }
+
+}
@@ -0,0 +1,139 @@
+package classes;
+
+/**
+ * GameEvents.java - reports what the game is doing to Java Flight Recorder
+ *
+ * The game is built for Java 11, which has the flight recorder, but every
+ * method does nothing if the JVM was built without the jdk.jfr module. The
+ * events themselves are in JfrEvents, which is only loaded when the
+ * recorder is there.
+ *
+ * Usage: java -XX:StartFlightRecording=filename=game.jfr -jar game.jar
+ *
+ * @author Darwin
+ */
+public final class GameEvents {
+
+    // true if jdk.jfr can be used
+    private static final boolean AVAILABLE = available();
+
+    /**
+     * Not used (only static methods)
+     */
+    private GameEvents() {
+    }
+
+    /**
+     * Checks if the flight recorder classes can be loaded
+     *
+     * @return true if they can
+     */
+    private static boolean available() {
+        try {
+            Class.forName("jdk.jfr.Event");
+            return true;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+
+    /**
+     * Starts timing a tick if tick events are being recorded, so the event
+     * covers the whole tick on the recording's timeline (the tick phases
+     * only need to be timed when it is)
+     *
+     * @param reuse the event returned for an earlier tick of the same world
+     * (reused so recording creates no new objects, null for none)
+     * @return the event to pass to tick, or null if ticks are not recorded
+     */
+    static Object tickStarted(Object reuse) {
+        return AVAILABLE ? JfrEvents.tickStarted(reuse) : null;
+    }
+
+    /**
+     * Reports a finished tick
+     *
+     * @param event the event tickStarted returned (nothing is reported if
+     * it is null)
+     * @param world the world after the tick
+     * @param phaseNanos time taken by each phase (indexed like FrameProfiler)
+     * @param tickNanos time taken by the whole tick
+     */
+    static void tick(Object event, World world, long[] phaseNanos, long tickNanos) {
+        if (event != null) {
+            JfrEvents.tick(event, world, phaseNanos, tickNanos);
+        }
+    }
+
+    /**
+     * Starts timing a new wave if wave events are being recorded
+     *
+     * @return the event to pass to waveStarted, or null if waves are not
+     * recorded
+     */
+    static Object waveStarting() {
+        return AVAILABLE ? JfrEvents.waveStarting() : null;
+    }
+
+    /**
+     * Reports a new wave of enemies
+     *
+     * @param event the event waveStarting returned (nothing is reported if
+     * it is null)
+     * @param waveNumber the wave's number
+     * @param enemies number of enemies spawned
+     * @param spawnNanos time taken to spawn the wave
+     */
+    static void waveStarted(Object event, int waveNumber, int enemies, long spawnNanos) {
+        if (event != null) {
+            JfrEvents.waveStarted(event, waveNumber, enemies, spawnNanos);
+        }
+    }
+
+    /**
+     * Reports a laser destroying an enemy
+     *
+     * @param enemy the enemy's number
+     * @param x x coordinate of the enemy
+     * @param y y coordinate of the enemy
+     * @param candidates number of enemies the laser was tested against
+     */
+    static void enemyHit(int enemy, double x, double y, int candidates) {
+        if (AVAILABLE) {
+            JfrEvents.enemyHit(enemy, x, y, candidates);
+        }
+    }
+
+    /**
+     * Reports a request to play a sound
+     *
+     * @param sound the sound's name
+     * @param priority the sound's priority
+     * @param gain the sound's volume
+     * @param mixed true if the mixer plays it, false if a clip does
+     * @param accepted false if the request was dropped
+     */
+    static void soundPlayed(String sound, int priority, float gain,
+            boolean mixed, boolean accepted) {
+        if (AVAILABLE) {
+            JfrEvents.soundPlayed(sound, priority, gain, mixed, accepted);
+        }
+    }
+
+    /**
+     * Reports the mixer starting a voice
+     *
+     * @param sound the sound's number in the mixer
+     * @param queuedNanos time the request waited in the queue
+     * @param bufferedNanos sound already waiting in the output line (the
+     * time before the new voice is heard)
+     * @param stolen true if a playing voice was replaced
+     */
+    static void voiceStarted(int sound, long queuedNanos, long bufferedNanos,
+            boolean stolen) {
+        if (AVAILABLE) {
+            JfrEvents.voiceStarted(sound, queuedNanos, bufferedNanos, stolen);
+        }
+    }
+
+}
@@ -0,0 +1,175 @@
+package classes;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * GameLoop.java - runs the world at a fixed tick rate on its own thread
+ *
+ * @author Darwin
+ */
+public class GameLoop implements Runnable {
+
+    // length of one tick in nanoseconds (20 milliseconds, as before)
+    static final long TICK_NANOS = 20_000_000L;
+    // longest stretch of time simulated after a stall (avoids a spiral of death)
+    private static final long MAX_FRAME_NANOS = 250_000_000L;
+    // bit marking a queued key event as a press rather than a release
+    private static final int PRESSED = 1 << 30;
+    // number of key events that can wait for a tick (far more than anyone
+    // can type in one tick)
+    private static final int INPUT_SIZE = 256;
+
+    // the simulated world
+    private final World world;
+    // receives each completed tick
+    private final StateBuffer states;
+    // key events waiting for the next tick (a ring of preallocated slots,
+    // so a key event creates no new objects)
+    private final AudioMixer.CommandQueue input = new AudioMixer.CommandQueue(INPUT_SIZE);
+    // records the key events as they are applied (null if not recording)
+    private volatile InputRecorder recorder;
+    // the simulation thread
+    private Thread thread;
+    private volatile boolean running = false;
+
+    /**
+     * constructor for a game loop
+     *
+     * @param world the world to simulate
+     * @param states the buffer that completed ticks are published to
+     */
+    public GameLoop(World world, StateBuffer states) {
+        this.world = world;
+        this.states = states;
+    }
+
+    /**
+     * Starts the simulation thread
+     */
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        // key events from before the game are thrown away
+        while (input.poll() != AudioMixer.CommandQueue.EMPTY) {
+            // each one is dropped as it is taken
+        }
+        running = true;
+        thread = new Thread(this, "simulation");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stops the simulation thread (waits for it unless called from it)
+     */
+    public synchronized void stop() {
+        running = false;
+        if (thread != null && thread != Thread.currentThread()) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        thread = null;
+    }
+
+    /**
+     * Sets the recorder that is given every key event as it is applied
+     *
+     * @param recorder the recorder (null to stop recording)
+     */
+    public void setRecorder(InputRecorder recorder) {
+        this.recorder = recorder;
+    }
+
+    /**
+     * Queues a key press for the next tick (safe to call from any thread)
+     *
+     * @param keyCode the key code from KeyEvent
+     */
+    public void keyPressed(int keyCode) {
+        queue(keyCode | PRESSED);
+    }
+
+    /**
+     * Queues a key release for the next tick (safe to call from any thread)
+     *
+     * @param keyCode the key code from KeyEvent
+     */
+    public void keyReleased(int keyCode) {
+        queue(keyCode);
+    }
+
+    /**
+     * Adds a key event to the queue
+     *
+     * @param event the key code, with PRESSED set for a press
+     */
+    private void queue(int event) {
+        if (!input.offer(event, 0)) {
+            System.out.println("key event dropped: the input queue is full");
+        }
+    }
+
+    /**
+     * The fixed time step loop
+     */
+    @Override
+    public void run() {
+        // publish the starting state so there is something to draw
+        states.publish(world);
+        long previous = System.nanoTime();
+        long accumulator = 0;
+        while (running) {
+            long now = System.nanoTime();
+            // time passed since the last loop is added to the accumulator
+            accumulator += Math.min(now - previous, MAX_FRAME_NANOS);
+            previous = now;
+            // run as many whole ticks as fit into the accumulated time
+            while (accumulator >= TICK_NANOS && running) {
+                tick();
+                accumulator -= TICK_NANOS;
+                // the loop ends once the game is lost
+                if (world.lost) {
+                    running = false;
+                }
+            }
+            // sleep until the next tick is due
+            LockSupport.parkNanos(TICK_NANOS - accumulator);
+        }
+    }
+
+    /**
+     * Runs one tick: applies the queued key events, advances the world and
+     * publishes it (the loop's thread calls this, or the caller when the
+     * loop is not started)
+     */
+    void tick() {
+        applyInput();
+        world.tick();
+        states.publish(world);
+    }
+
+    /**
+     * Applies the queued key events to the world
+     */
+    private void applyInput() {
+        InputRecorder rec = recorder;
+        long polled;
+        while ((polled = input.poll()) != AudioMixer.CommandQueue.EMPTY) {
+            int event = (int) polled;
+            // events are stamped with the tick they are applied before
+            if (rec != null) {
+                rec.record(world.tick, event & ~PRESSED, (event & PRESSED) != 0);
+            }
+            if ((event & PRESSED) != 0) {
+                world.keyPressed(event & ~PRESSED);
+            } else {
+                world.keyReleased(event);
+            }
+        }
+    }
+
+}
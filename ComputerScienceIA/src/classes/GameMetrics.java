@@ -0,0 +1,99 @@
+package classes;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * GameMetrics.java - live counters written by the simulation thread and read
+ * by the metrics server
+ *
+ * The simulation thread only stores values (no locks, nothing that can
+ * wait), and readers see the values of a recent tick.
+ *
+ * @author Darwin
+ */
+public class GameMetrics {
+
+    // counter slots
+    static final int TICKS = 0;
+    static final int ENEMIES_ALIVE = 1;
+    static final int LASERS = 2;
+    static final int WAVE_NUMBER = 3;
+    static final int SCORE = 4;
+    static final int GAMES_LOST = 5;
+    private static final int SLOTS = 6;
+
+    // the counters
+    private final AtomicLongArray values = new AtomicLongArray(SLOTS);
+    // true while the last game was lost (so it is only counted once)
+    private boolean lost = false;
+    // where the tick and frame timings come from (may be null)
+    private volatile FrameProfiler profiler;
+    // the sounds being played (may be null)
+    private volatile AudioPlayer audio;
+
+    /**
+     * Copies the world's counters after a tick (only the simulation thread
+     * calls this)
+     *
+     * @param world the world that just finished a tick
+     */
+    void update(World world) {
+        // lazySet is enough because only one thread writes
+        values.lazySet(TICKS, values.get(TICKS) + 1);
+        values.lazySet(ENEMIES_ALIVE, world.enemies.count);
+        values.lazySet(LASERS, world.lasers.count);
+        values.lazySet(WAVE_NUMBER, world.waveNumber);
+        values.lazySet(SCORE, world.score);
+        if (world.lost && !lost) {
+            values.lazySet(GAMES_LOST, values.get(GAMES_LOST) + 1);
+        }
+        lost = world.lost;
+    }
+
+    /**
+     * retrieve a counter
+     *
+     * @param slot the counter (TICKS, LASERS, ...)
+     * @return the counter's value
+     */
+    public long get(int slot) {
+        return values.get(slot);
+    }
+
+    /**
+     * retrieve the profiler the timings come from
+     *
+     * @return the profiler (null if there is none)
+     */
+    public FrameProfiler getProfiler() {
+        return profiler;
+    }
+
+    /**
+     * Sets the profiler the timings come from
+     *
+     * @param profiler the profiler
+     */
+    public void setProfiler(FrameProfiler profiler) {
+        this.profiler = profiler;
+    }
+
+    /**
+     * retrieve the audio player
+     *
+     * @return the audio player (null if there is none)
+     */
+    public AudioPlayer getAudio() {
+        return audio;
+    }
+
+    /**
+     * Sets the audio player the voice count comes from
+     *
+     * @param audio the audio player
+     */
+    public void setAudio(AudioPlayer audio) {
+        this.audio = audio;
+    }
+
+}
@@ -0,0 +1,94 @@
+package classes;
+
+/**
+ * GameRandom.java - a small seeded random number generator (SplitMix64)
+ *
+ * The same seed always gives the same numbers, so a game can be played
+ * again exactly from its seed and its key presses. Unlike Math.random, it
+ * can be reseeded without creating a new object.
+ *
+ * @author Darwin
+ */
+public final class GameRandom {
+
+    // added to the state for every number (an odd constant from SplitMix64)
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+    // the generator's state
+    private long state;
+
+    /**
+     * constructor for a generator
+     *
+     * @param seed the seed
+     */
+    public GameRandom(long seed) {
+        state = seed;
+    }
+
+    /**
+     * Restarts the generator from a seed
+     *
+     * @param seed the seed
+     */
+    public void setSeed(long seed) {
+        state = seed;
+    }
+
+    /**
+     * Draws a random long
+     *
+     * @return any long value
+     */
+    public long nextLong() {
+        state += GOLDEN_GAMMA;
+        return mix(state);
+    }
+
+    /**
+     * Draws a random double from 0 (inclusive) to 1 (exclusive), like
+     * Math.random
+     *
+     * @return the random double
+     */
+    public double nextDouble() {
+        // the top 53 bits fill the double's mantissa
+        return (nextLong() >>> 11) * 0x1.0p-53;
+    }
+
+    /**
+     * Works out the n-th long a generator would draw without drawing the ones
+     * before it (so games can be handed out to threads in any order)
+     *
+     * @param seed the generator's seed
+     * @param n which long to work out (0 is the first)
+     * @return the same value as the n-th call to nextLong
+     */
+    static long nthLong(long seed, long n) {
+        return mix(seed + (n + 1) * GOLDEN_GAMMA);
+    }
+
+    /**
+     * Scrambles a value so that nearby inputs give unrelated outputs
+     *
+     * @param z the value
+     * @return the scrambled value
+     */
+    static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Turns a value into a repeatable random double from 0 to 1 (for
+     * effects that only need to look random)
+     *
+     * @param value the value
+     * @return the random double
+     */
+    static double hash(long value) {
+        return (mix(value * GOLDEN_GAMMA) >>> 11) * 0x1.0p-53;
+    }
+
+}
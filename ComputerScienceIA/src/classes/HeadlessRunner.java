@@ -0,0 +1,120 @@
+package classes;
+
+import java.io.File;
+import java.io.PrintWriter;
+
+/**
+ * HeadlessRunner.java - steps the world as fast as possible without a display
+ *
+ * @author Darwin
+ */
+public class HeadlessRunner implements WorldListener {
+
+    // the simulated world
+    private final World world;
+    // number of ticks to run
+    private final long ticks;
+    // number of games that ended during the run
+    private int gamesLost = 0;
+    // best score reached in any game
+    private int bestScore = 0;
+    // file the phase timings are written to (null if the phases are not timed)
+    private File profile;
+    private final FrameProfiler profiler = new FrameProfiler();
+    // live counters for the metrics server
+    private final GameMetrics metrics = new GameMetrics();
+
+    /**
+     * constructor for a headless run
+     *
+     * @param ticks number of ticks to simulate
+     * @param enemyAmount number of enemies in each wave
+     */
+    public HeadlessRunner(long ticks, int enemyAmount) {
+        this(ticks, enemyAmount, System.nanoTime());
+    }
+
+    /**
+     * constructor for a headless run that plays the same games every time
+     *
+     * @param ticks number of ticks to simulate
+     * @param enemyAmount number of enemies in each wave
+     * @param seed picks the seed of every game
+     */
+    public HeadlessRunner(long ticks, int enemyAmount, long seed) {
+        this.ticks = ticks;
+        world = new World(enemyAmount, seed);
+        world.setListener(this);
+        world.setMetrics(metrics);
+        metrics.setProfiler(profiler);
+    }
+
+    /**
+     * retrieve the live counters of the run
+     *
+     * @return the counters
+     */
+    public GameMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Times each phase of the tick and writes the results to a file after
+     * the run
+     *
+     * @param profile the file to write
+     */
+    public void setProfile(File profile) {
+        this.profile = profile;
+        world.setProfiler(profile == null ? null : profiler);
+    }
+
+    /**
+     * Runs the simulation and prints the tick rate
+     */
+    public void run() {
+        // start a fresh game
+        world.load();
+        long start = System.nanoTime();
+        for (long t = 0; t < ticks; t++) {
+            world.tick();
+            // a lost game is restarted immediately
+            if (world.lost) {
+                world.load();
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        double seconds = elapsed / 1e9;
+        // report the results
+        System.out.println("ticks: " + ticks);
+        System.out.println("enemies per wave: " + world.getEnemyAmount());
+        System.out.println("games lost: " + gamesLost);
+        System.out.println("best score: " + bestScore);
+        System.out.printf("elapsed: %.3f s%n", seconds);
+        System.out.printf("ticks/second: %.0f%n", ticks / seconds);
+        if (profile != null) {
+            profiler.write(new PrintWriter(System.out));
+            profiler.dump(profile);
+        }
+    }
+
+    @Override
+    public void laserFired() {
+    }
+
+    @Override
+    public void enemyDestroyed() {
+    }
+
+    /**
+     * Counts lost games
+     *
+     * @param score the final score of the game
+     */
+    @Override
+    public void gameLost(int score) {
+        gamesLost++;
+        bestScore = Math.max(bestScore, score);
+    }
+
+}
@@ -0,0 +1,139 @@
+package classes;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * InputRecorder.java - records a game's seed and key presses so the game can
+ * be played again exactly by ReplayPlayer
+ *
+ * The log is kept in memory while the game runs (recording never touches the
+ * disk on the simulation thread) and written when the game ends. Format:
+ *
+ * <pre>
+ * int   MAGIC, byte VERSION
+ * int   enemies per wave
+ * int   zone size
+ * long  seed
+ * then for each key event: varint ticks since the previous event,
+ *                          varint (keyCode + 1) * 2 + (1 if pressed)
+ * then: varint ticks since the previous event, varint 0 (end),
+ *       long checksum of the world on the last tick
+ * </pre>
+ *
+ * @author Darwin
+ */
+public class InputRecorder {
+
+    // marks the start of a recording ("SFCD")
+    static final int MAGIC = 0x53464344;
+    // (version 2 checksums only the live enemies, version 3 adds the zone
+    // size and makes the scenery from its own seed)
+    static final int VERSION = 3;
+    // code marking the end of the events
+    static final int END = 0;
+
+    // where the recording is written
+    private final File file;
+    // the recorded events
+    private byte[] events = new byte[4096];
+    private int length = 0;
+    // tick of the previous event
+    private long lastTick = 0;
+    // the game being recorded
+    private long seed;
+    private int enemyAmount;
+    private boolean recording = false;
+
+    /**
+     * constructor for a recorder
+     *
+     * @param file where the recording is written when the game ends
+     */
+    public InputRecorder(File file) {
+        this.file = file;
+    }
+
+    /**
+     * Starts recording a new game (the previous recording is forgotten)
+     *
+     * @param world the world, just after it was loaded
+     */
+    public synchronized void start(World world) {
+        seed = world.getSeed();
+        enemyAmount = world.getEnemyAmount();
+        length = 0;
+        lastTick = 0;
+        recording = true;
+    }
+
+    /**
+     * Records a key event (called on the simulation thread just before the
+     * event is applied)
+     *
+     * @param tick the world's tick when the event is applied
+     * @param keyCode the key code from KeyEvent
+     * @param pressed true for a press, false for a release
+     */
+    public synchronized void record(long tick, int keyCode, boolean pressed) {
+        if (!recording) {
+            return;
+        }
+        writeVarint(tick - lastTick);
+        writeVarint(((long) keyCode + 1) * 2 + (pressed ? 1 : 0));
+        lastTick = tick;
+    }
+
+    /**
+     * Ends the recording and writes it to the file (the simulation must be
+     * stopped first so the checksum is of the last tick)
+     *
+     * @param world the world the game was played in
+     */
+    public synchronized void finish(World world) {
+        if (!recording) {
+            return;
+        }
+        recording = false;
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(file)))) {
+            out.writeInt(MAGIC);
+            out.writeByte(VERSION);
+            out.writeInt(enemyAmount);
+            out.writeInt(World.ZONE_SIZE);
+            out.writeLong(seed);
+            out.write(events, 0, length);
+            // the end marker is stamped with the last tick
+            length = 0;
+            writeVarint(world.tick - lastTick);
+            writeVarint(END);
+            out.write(events, 0, length);
+            out.writeLong(world.checksum());
+        } catch (IOException e) {
+            // any errors become printed
+            System.out.println(e);
+        }
+    }
+
+    /**
+     * Adds a number using as few bytes as possible (7 bits per byte, the top
+     * bit is set on every byte but the last)
+     *
+     * @param value the number (not negative)
+     */
+    private void writeVarint(long value) {
+        if (length + 10 > events.length) {
+            events = Arrays.copyOf(events, events.length * 2);
+        }
+        while ((value & ~0x7FL) != 0) {
+            events[length++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        events[length++] = (byte) value;
+    }
+
+}
@@ -0,0 +1,282 @@
+package classes;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * JfrEvents.java - the flight recorder events the game emits (only used
+ * through GameEvents)
+ *
+ * @author Darwin
+ */
+final class JfrEvents {
+
+    // looked up once so checking if an event is recorded is cheap (an event
+    // object is only created when it is, so the game creates nothing while
+    // no recording is running, and each world reuses its tick event)
+    private static final EventType TICK_TYPE = EventType.getEventType(TickEvent.class);
+    private static final EventType WAVE_TYPE = EventType.getEventType(WaveStartEvent.class);
+    private static final EventType COLLISION_TYPE = EventType.getEventType(CollisionEvent.class);
+    private static final EventType SOUND_TYPE = EventType.getEventType(SoundPlayEvent.class);
+    private static final EventType VOICE_TYPE = EventType.getEventType(VoiceStartEvent.class);
+
+    /**
+     * Not used (only static methods)
+     */
+    private JfrEvents() {
+    }
+
+    /**
+     * Starts a tick event (see GameEvents.tickStarted)
+     */
+    static Object tickStarted(Object reuse) {
+        if (!TICK_TYPE.isEnabled()) {
+            return null;
+        }
+        TickEvent e = reuse instanceof TickEvent ? (TickEvent) reuse : new TickEvent();
+        e.begin();
+        return e;
+    }
+
+    /**
+     * Emits a tick event (see GameEvents.tick)
+     */
+    static void tick(Object event, World world, long[] phaseNanos, long tickNanos) {
+        TickEvent e = (TickEvent) event;
+        e.end();
+        if (e.shouldCommit()) {
+            e.tick = world.tick;
+            e.waveNumber = world.waveNumber;
+            e.enemiesAlive = world.enemies.count;
+            e.lasers = world.lasers.count;
+            e.score = world.score;
+            e.tickDuration = tickNanos;
+            e.moveDrone = phaseNanos[FrameProfiler.MOVE_DRONE];
+            e.moveLaser = phaseNanos[FrameProfiler.MOVE_LASER];
+            e.wallCollisions = phaseNanos[FrameProfiler.WALL_COLLISIONS];
+            e.enemyDeaths = phaseNanos[FrameProfiler.ENEMY_DEATHS];
+            e.moveEnemy = phaseNanos[FrameProfiler.MOVE_ENEMY];
+            e.updateHUD = phaseNanos[FrameProfiler.UPDATE_HUD];
+            e.updateCamera = phaseNanos[FrameProfiler.UPDATE_CAMERA];
+            e.timers = phaseNanos[FrameProfiler.TIMERS];
+            e.particles = phaseNanos[FrameProfiler.PARTICLES];
+            e.commit();
+        }
+    }
+
+    /**
+     * Starts a wave start event (see GameEvents.waveStarting)
+     */
+    static Object waveStarting() {
+        if (!WAVE_TYPE.isEnabled()) {
+            return null;
+        }
+        WaveStartEvent e = new WaveStartEvent();
+        e.begin();
+        return e;
+    }
+
+    /**
+     * Emits a wave start event (see GameEvents.waveStarted)
+     */
+    static void waveStarted(Object event, int waveNumber, int enemies, long spawnNanos) {
+        WaveStartEvent e = (WaveStartEvent) event;
+        e.end();
+        if (e.shouldCommit()) {
+            e.waveNumber = waveNumber;
+            e.enemies = enemies;
+            e.spawnDuration = spawnNanos;
+            e.commit();
+        }
+    }
+
+    /**
+     * Emits a collision event (see GameEvents.enemyHit)
+     */
+    static void enemyHit(int enemy, double x, double y, int candidates) {
+        if (!COLLISION_TYPE.isEnabled()) {
+            return;
+        }
+        CollisionEvent e = new CollisionEvent();
+        if (e.shouldCommit()) {
+            e.enemy = enemy;
+            e.x = x;
+            e.y = y;
+            e.candidates = candidates;
+            e.commit();
+        }
+    }
+
+    /**
+     * Emits a sound play event (see GameEvents.soundPlayed)
+     */
+    static void soundPlayed(String sound, int priority, float gain,
+            boolean mixed, boolean accepted) {
+        if (!SOUND_TYPE.isEnabled()) {
+            return;
+        }
+        SoundPlayEvent e = new SoundPlayEvent();
+        if (e.shouldCommit()) {
+            e.sound = sound;
+            e.priority = priority;
+            e.gain = gain;
+            e.mixed = mixed;
+            e.accepted = accepted;
+            e.commit();
+        }
+    }
+
+    /**
+     * Emits a voice start event (see GameEvents.voiceStarted)
+     */
+    static void voiceStarted(int sound, long queuedNanos, long bufferedNanos,
+            boolean stolen) {
+        if (!VOICE_TYPE.isEnabled()) {
+            return;
+        }
+        VoiceStartEvent e = new VoiceStartEvent();
+        if (e.shouldCommit()) {
+            e.sound = sound;
+            e.queued = queuedNanos;
+            e.buffered = bufferedNanos;
+            e.latency = queuedNanos + bufferedNanos;
+            e.stolen = stolen;
+            e.commit();
+        }
+    }
+
+    @Name("classes.Tick")
+    @Label("Game Tick")
+    @Category({"Game", "Simulation"})
+    @Description("One fixed-rate step of the simulation")
+    @StackTrace(false)
+    static final class TickEvent extends Event {
+
+        @Label("Tick")
+        long tick;
+        @Label("Wave Number")
+        int waveNumber;
+        @Label("Enemies Alive")
+        int enemiesAlive;
+        @Label("Lasers")
+        int lasers;
+        @Label("Score")
+        int score;
+        @Label("Tick Duration")
+        @Timespan
+        long tickDuration;
+        @Label("Move Drone")
+        @Timespan
+        long moveDrone;
+        @Label("Move Laser")
+        @Timespan
+        long moveLaser;
+        @Label("Wall Collisions")
+        @Timespan
+        long wallCollisions;
+        @Label("Enemy Deaths")
+        @Timespan
+        long enemyDeaths;
+        @Label("Move Enemy")
+        @Timespan
+        long moveEnemy;
+        @Label("Update HUD")
+        @Timespan
+        long updateHUD;
+        @Label("Update Camera")
+        @Timespan
+        long updateCamera;
+        @Label("Timers")
+        @Timespan
+        long timers;
+        @Label("Particles")
+        @Timespan
+        long particles;
+    }
+
+    @Name("classes.WaveStart")
+    @Label("Wave Start")
+    @Category({"Game", "Simulation"})
+    @Description("A new wave of enemies was spawned")
+    static final class WaveStartEvent extends Event {
+
+        @Label("Wave Number")
+        int waveNumber;
+        @Label("Enemies")
+        int enemies;
+        @Label("Spawn Duration")
+        @Timespan
+        long spawnDuration;
+    }
+
+    @Name("classes.Collision")
+    @Label("Laser Hit")
+    @Category({"Game", "Simulation"})
+    @Description("A laser destroyed an enemy")
+    @StackTrace(false)
+    static final class CollisionEvent extends Event {
+
+        @Label("Enemy")
+        int enemy;
+        @Label("X")
+        double x;
+        @Label("Y")
+        double y;
+        @Label("Candidates")
+        @Description("Enemies near the laser that were tested")
+        int candidates;
+    }
+
+    @Name("classes.SoundPlay")
+    @Label("Sound Play")
+    @Category({"Game", "Audio"})
+    @Description("A sound effect was asked to play")
+    static final class SoundPlayEvent extends Event {
+
+        @Label("Sound")
+        String sound;
+        @Label("Priority")
+        int priority;
+        @Label("Gain")
+        float gain;
+        @Label("Mixed")
+        @Description("True if the software mixer plays the sound, false if a clip does")
+        boolean mixed;
+        @Label("Accepted")
+        @Description("False if the request was dropped")
+        boolean accepted;
+    }
+
+    @Name("classes.VoiceStart")
+    @Label("Voice Start")
+    @Category({"Game", "Audio"})
+    @Description("The mixer started playing a sound")
+    @StackTrace(false)
+    static final class VoiceStartEvent extends Event {
+
+        @Label("Sound")
+        int sound;
+        @Label("Queued")
+        @Description("Time the request waited in the command queue")
+        @Timespan
+        long queued;
+        @Label("Buffered")
+        @Description("Sound already waiting in the output line")
+        @Timespan
+        long buffered;
+        @Label("Latency")
+        @Description("Estimated time from the request until the sound is heard")
+        @Timespan
+        long latency;
+        @Label("Stolen")
+        @Description("True if a playing voice was replaced")
+        boolean stolen;
+    }
+
+}
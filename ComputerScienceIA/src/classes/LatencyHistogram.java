@@ -0,0 +1,157 @@
+package classes;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * LatencyHistogram.java - counts how long something took, in nanoseconds,
+ * without keeping every measurement
+ *
+ * Each power of two is split into 32 equal buckets, so a percentile is
+ * accurate to about 3% whatever the size of the values. Only one thread may
+ * record, but any thread can read (the reader sees a recent, possibly
+ * slightly incomplete, picture).
+ *
+ * @author Darwin
+ */
+public class LatencyHistogram {
+
+    // values below this are counted exactly
+    private static final int EXACT = 64;
+    // buckets in each power of two above that
+    private static final int SUB_BUCKETS = 32;
+    private static final int SUB_BITS = 5;
+    // total number of buckets (enough for any positive long)
+    private static final int BUCKETS = EXACT + (64 - SUB_BITS - 2) * SUB_BUCKETS;
+
+    // number of values in each bucket
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    // number of values, their total and the largest value
+    private volatile long count = 0;
+    private volatile long total = 0;
+    private volatile long max = 0;
+
+    /**
+     * Adds a value (only one thread may call this)
+     *
+     * @param nanos the value in nanoseconds (negative values count as 0)
+     */
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        int i = bucketOf(value);
+        // lazySet is enough because only one thread writes
+        counts.lazySet(i, counts.get(i) + 1);
+        total += value;
+        if (value > max) {
+            max = value;
+        }
+        count++;
+    }
+
+    /**
+     * Forgets every value (only the recording thread may call this)
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts.lazySet(i, 0);
+        }
+        count = 0;
+        total = 0;
+        max = 0;
+    }
+
+    /**
+     * retrieve the number of values
+     *
+     * @return the number of values
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * retrieve the sum of every value
+     *
+     * @return the total in nanoseconds
+     */
+    public long getTotal() {
+        return total;
+    }
+
+    /**
+     * retrieve the largest value
+     *
+     * @return the largest value in nanoseconds
+     */
+    public long getMax() {
+        return max;
+    }
+
+    /**
+     * retrieve the average value
+     *
+     * @return the average in nanoseconds (0 if there are no values)
+     */
+    public long getMean() {
+        long n = count;
+        return n == 0 ? 0 : total / n;
+    }
+
+    /**
+     * Finds the values below which given fractions of the values fall
+     *
+     * @param fractions the fractions, from smallest to largest (0.5 is the
+     * median)
+     * @param out receives the value for each fraction in nanoseconds
+     */
+    public void percentiles(double[] fractions, long[] out) {
+        long n = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            n += counts.get(i);
+        }
+        int f = 0;
+        long seen = 0;
+        for (int i = 0; i < BUCKETS && f < fractions.length; i++) {
+            seen += counts.get(i);
+            // every fraction reached in this bucket gets the bucket's value
+            while (f < fractions.length && n > 0
+                    && seen >= Math.ceil(fractions[f] * n)) {
+                out[f++] = Math.min(highestValueIn(i), max);
+            }
+        }
+        while (f < fractions.length) {
+            out[f++] = n == 0 ? 0 : max;
+        }
+    }
+
+    /**
+     * Finds the bucket a value is counted in
+     *
+     * @param value the value
+     * @return the bucket
+     */
+    static int bucketOf(long value) {
+        if (value < EXACT) {
+            return (int) value;
+        }
+        // shift so the value keeps SUB_BITS + 1 significant bits
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BITS;
+        return EXACT + (shift - 1) * SUB_BUCKETS
+                + (int) (value >>> shift) - SUB_BUCKETS;
+    }
+
+    /**
+     * Finds the largest value that is counted in a bucket
+     *
+     * @param bucket the bucket
+     * @return the largest value
+     */
+    static long highestValueIn(int bucket) {
+        if (bucket < EXACT) {
+            return bucket;
+        }
+        int shift = (bucket - EXACT) / SUB_BUCKETS + 1;
+        long lowest = (long) ((bucket - EXACT) % SUB_BUCKETS + SUB_BUCKETS) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+
+}
@@ -2,6 +2,7 @@ package classes;
 
 import java.awt.Color;
 import java.awt.Font;
+import java.io.IOException;
 import javax.swing.BorderFactory;
 import javax.swing.JButton;
 import javax.swing.JFrame;
@@ -24,11 +25,19 @@ public class Main {
     static Border border;
     static JLabel background;
     static GamePanel panel;
+    // command line arguments
+    static String[] options = new String[0];
 
     /**
      * @param args the command line arguments
      */
     public static void main(String[] args) {
+        options = args;
+        // check if the game should run without a display
+        if (hasOption(args, "--headless")) {
+            runHeadless(args);
+            return;
+        }
         // initializing objects
         frame = new JFrame("Space Force City Defender");
         play = new JButton("Start");
@@ -51,6 +60,149 @@ public class Main {
         frame.setVisible(true);
     }
 
+    /**
+     * Runs the simulation without a display and reports the tick rate
+     *
+     * usage: --headless [--ticks N] [--enemies N] [--seed N] [--profile FILE]
+     * [--metrics PORT] [--alloc-check] [--replay FILE [--speed X]]
+     * [--simulate GAMES [--threads N] [--max-ticks N]]
+     *
+     * @param args the command line arguments
+     */
+    private static void runHeadless(String[] args) {
+        // --alloc-check fails if a tick or frame creates new objects
+        if (hasOption(args, "--alloc-check")) {
+            int iterations = Integer.parseInt(getOption(args, "--ticks", "20000"));
+            int enemies = Integer.parseInt(getOption(args, "--enemies",
+                    String.valueOf(World.MAX_ENEMY_AMOUNT)));
+            boolean passed = new AllocationCheck(iterations, iterations, enemies).run();
+            System.exit(passed ? 0 : 1);
+        }
+        // --replay FILE plays a recorded game again (--speed X for X times
+        // real time, as fast as possible by default)
+        String replay = getOption(args, "--replay", null);
+        if (replay != null) {
+            replay(args, new java.io.File(replay));
+            return;
+        }
+        // --simulate GAMES plays many games with a scripted player on every
+        // core and reports how far they got
+        String games = getOption(args, "--simulate", null);
+        if (games != null) {
+            new WaveSimulator(Integer.parseInt(games),
+                    Integer.parseInt(getOption(args, "--enemies",
+                            String.valueOf(World.MAX_ENEMY_AMOUNT))),
+                    Long.parseLong(getOption(args, "--seed",
+                            String.valueOf(System.nanoTime()))),
+                    Long.parseLong(getOption(args, "--max-ticks", "100000")))
+                    .run(Integer.parseInt(getOption(args, "--threads",
+                            String.valueOf(Runtime.getRuntime().availableProcessors()))));
+            return;
+        }
+        long ticks = Long.parseLong(getOption(args, "--ticks", "100000"));
+        int enemies = Integer.parseInt(getOption(args, "--enemies",
+                String.valueOf(World.MAX_ENEMY_AMOUNT)));
+        // --seed N plays the same games on every run
+        String seed = getOption(args, "--seed", null);
+        HeadlessRunner runner = seed == null ? new HeadlessRunner(ticks, enemies)
+                : new HeadlessRunner(ticks, enemies, Long.parseLong(seed));
+        // --profile FILE times each phase of the tick and writes the results
+        String profile = getOption(args, "--profile", null);
+        if (profile != null) {
+            runner.setProfile(new java.io.File(profile));
+        }
+        startMetrics(runner.getMetrics());
+        runner.run();
+    }
+
+    /**
+     * Plays a recorded game without a display and checks that it ends the way
+     * it did when it was recorded
+     *
+     * @param args the command line arguments
+     * @param file the recording
+     */
+    private static void replay(String[] args, java.io.File file) {
+        ReplayPlayer player;
+        try {
+            player = new ReplayPlayer(file);
+        } catch (IOException e) {
+            // any errors become printed
+            System.out.println(e);
+            System.exit(1);
+            return;
+        }
+        FrameProfiler profiler = new FrameProfiler();
+        String profile = getOption(args, "--profile", null);
+        if (profile != null) {
+            player.getWorld().setProfiler(profiler);
+        }
+        GameMetrics metrics = new GameMetrics();
+        metrics.setProfiler(profiler);
+        player.getWorld().setMetrics(metrics);
+        startMetrics(metrics);
+        boolean matched = player.play(Double.parseDouble(getOption(args, "--speed", "0")));
+        if (profile != null) {
+            profiler.dump(new java.io.File(profile));
+        }
+        System.exit(matched ? 0 : 1);
+    }
+
+    /**
+     * Serves the game's counters on a loopback port if --metrics PORT was
+     * given
+     *
+     * @param metrics the counters to serve
+     */
+    private static void startMetrics(GameMetrics metrics) {
+        String port = getOption(options, "--metrics", null);
+        if (port == null) {
+            return;
+        }
+        try {
+            MetricsServer server = new MetricsServer(metrics, Integer.parseInt(port));
+            server.start();
+            System.out.println("metrics: http://127.0.0.1:" + server.getPort()
+                    + "/metrics");
+        } catch (IOException | NumberFormatException e) {
+            // any errors become printed
+            System.out.println(e);
+        }
+    }
+
+    /**
+     * Checks if a flag is present in the command line arguments
+     *
+     * @param args the command line arguments
+     * @param name the flag to look for
+     * @return true if the flag is present
+     */
+    static boolean hasOption(String[] args, String name) {
+        for (String arg : args) {
+            if (arg.equals(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Retrieves the value following an option in the command line arguments
+     *
+     * @param args the command line arguments
+     * @param name the option to look for
+     * @param fallback the value used when the option is missing
+     * @return the option's value
+     */
+    static String getOption(String[] args, String name, String fallback) {
+        for (int i = 0; i < args.length - 1; i++) {
+            if (args[i].equals(name)) {
+                return args[i + 1];
+            }
+        }
+        return fallback;
+    }
+
     /**
      * Add all the components to the JFrame
      */
@@ -60,8 +212,25 @@ public class Main {
         frame.add(instructions);
         frame.add(background);
         // create a game panel and add it to the container
-        panel = new GamePanel();
+        // --fps N sets the frame rate (0 for uncapped, default is the display rate)
+        // --active draws frames with a buffer strategy instead of repainting
+        panel = new GamePanel(Integer.parseInt(getOption(options, "--fps", "-1")),
+                hasOption(options, "--active"));
         frame.add(panel);
+        // --profile FILE writes the phase timings to a file when the game exits
+        String profile = getOption(options, "--profile", null);
+        if (profile != null) {
+            Runtime.getRuntime().addShutdownHook(new Thread(
+                    () -> panel.getProfiler().dump(new java.io.File(profile))));
+        }
+        // --record FILE writes each game's seed and key presses to a file
+        // that --headless --replay FILE plays again
+        String record = getOption(options, "--record", null);
+        if (record != null) {
+            panel.setRecorder(new InputRecorder(new java.io.File(record)));
+            Runtime.getRuntime().addShutdownHook(new Thread(panel::finishRecording));
+        }
+        startMetrics(panel.getMetrics());
         // makes the panel invisible and unable to be interacted with
         panel.setVisible(false);
         // background label covers the entire frame
@@ -99,7 +268,8 @@ public class Main {
                     + "\nD - Tilt drone right"
                     + "\n← - shoot a laser left"
                     + "\n→ - Shoot a laser right"
-                    + "\nH - Toggle HUD");
+                    + "\nH - Toggle HUD"
+                    + "\nP - Toggle performance overlay");
         });
 
     }
@@ -0,0 +1,227 @@
+package classes;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryUsage;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * MetricsServer.java - serves the game's counters and the JVM's performance
+ * counters as Prometheus text on http://127.0.0.1:PORT/metrics
+ *
+ * The server only listens on the loopback address and answers on its own
+ * thread. It reads the counters without locking anything the simulation
+ * thread uses, so a scrape never delays a tick.
+ *
+ * @author Darwin
+ */
+public class MetricsServer {
+
+    // the counters being served
+    private final GameMetrics metrics;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    // reads per-thread allocation counts
+    private final com.sun.management.ThreadMXBean threads;
+    // tick counter and time of the previous scrape (for the tick rate)
+    private long lastTicks = 0;
+    private long lastNanos = System.nanoTime();
+    private long lastAllocated = 0;
+    // receives the percentiles of a histogram
+    private final long[] percentiles = new long[FrameProfiler.FRACTIONS.length];
+
+    /**
+     * constructor for a server on a loopback port
+     *
+     * @param metrics the counters to serve
+     * @param port the port to listen on (0 picks a free port)
+     * @throws IOException if the port cannot be opened
+     */
+    public MetricsServer(GameMetrics metrics, int port) throws IOException {
+        this.metrics = metrics;
+        threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        server = HttpServer.create(
+                new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.createContext("/metrics", this::handle);
+        // a single low priority thread answers every request
+        executor = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "metrics");
+            t.setDaemon(true);
+            t.setPriority(Thread.MIN_PRIORITY);
+            return t;
+        });
+        server.setExecutor(executor);
+    }
+
+    /**
+     * retrieve the port the server listens on
+     *
+     * @return the port
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Starts answering requests
+     */
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * Stops the server
+     */
+    public void stop() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    /**
+     * Answers one request
+     *
+     * @param exchange the request and its response
+     * @throws IOException if the response cannot be sent
+     */
+    private void handle(HttpExchange exchange) throws IOException {
+        byte[] body = render().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type",
+                "text/plain; version=0.0.4; charset=utf-8");
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    /**
+     * Writes every metric in the Prometheus text format
+     *
+     * @return the metrics text
+     */
+    synchronized String render() {
+        StringBuilder sb = new StringBuilder(4096);
+        // game counters
+        long ticks = metrics.get(GameMetrics.TICKS);
+        long now = System.nanoTime();
+        double seconds = (now - lastNanos) / 1e9;
+        double rate = seconds <= 0 ? 0 : (ticks - lastTicks) / seconds;
+        lastTicks = ticks;
+        metric(sb, "game_ticks_total", "counter", "Ticks simulated", ticks);
+        metric(sb, "game_ticks_per_second", "gauge",
+                "Tick rate since the previous scrape", rate);
+        metric(sb, "game_enemies_active", "gauge", "Enemies alive",
+                metrics.get(GameMetrics.ENEMIES_ALIVE));
+        metric(sb, "game_lasers_active", "gauge", "Lasers in flight",
+                metrics.get(GameMetrics.LASERS));
+        metric(sb, "game_wave_number", "gauge", "Current wave",
+                metrics.get(GameMetrics.WAVE_NUMBER));
+        metric(sb, "game_score", "gauge", "Current score",
+                metrics.get(GameMetrics.SCORE));
+        metric(sb, "game_games_lost_total", "counter", "Games lost",
+                metrics.get(GameMetrics.GAMES_LOST));
+        AudioPlayer audio = metrics.getAudio();
+        metric(sb, "game_audio_voices_active", "gauge", "Sounds playing",
+                audio == null ? 0 : audio.activeVoices());
+        // tick and frame timings
+        FrameProfiler profiler = metrics.getProfiler();
+        if (profiler != null) {
+            header(sb, "game_phase_seconds", "summary",
+                    "Time taken by each tick phase and frame phase");
+            for (int i = 0; i < FrameProfiler.PHASES; i++) {
+                LatencyHistogram h = profiler.get(i);
+                h.percentiles(FrameProfiler.FRACTIONS, percentiles);
+                for (int q = 0; q < percentiles.length; q++) {
+                    sample(sb, "game_phase_seconds{phase=\"" + FrameProfiler.NAMES[i]
+                            + "\",quantile=\"" + FrameProfiler.FRACTIONS[q] + "\"}",
+                            percentiles[q] / 1e9);
+                }
+                sample(sb, "game_phase_seconds{phase=\"" + FrameProfiler.NAMES[i]
+                        + "\",quantile=\"1.0\"}", h.getMax() / 1e9);
+                sample(sb, "game_phase_seconds_sum{phase=\""
+                        + FrameProfiler.NAMES[i] + "\"}", h.getTotal() / 1e9);
+                sample(sb, "game_phase_seconds_count{phase=\""
+                        + FrameProfiler.NAMES[i] + "\"}", h.getCount());
+            }
+        }
+        // JVM counters
+        long allocated = 0;
+        for (long bytes : threads.getThreadAllocatedBytes(threads.getAllThreadIds())) {
+            allocated += Math.max(0, bytes);
+        }
+        metric(sb, "jvm_allocated_bytes", "gauge",
+                "Bytes allocated by the threads that are still running", allocated);
+        metric(sb, "jvm_allocation_bytes_per_second", "gauge",
+                "Allocation rate since the previous scrape",
+                seconds <= 0 ? 0 : Math.max(0, allocated - lastAllocated) / seconds);
+        lastAllocated = allocated;
+        lastNanos = now;
+        MemoryUsage heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+        metric(sb, "jvm_heap_used_bytes", "gauge", "Heap in use", heap.getUsed());
+        header(sb, "jvm_gc_collections_total", "counter", "Garbage collections");
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            sample(sb, "jvm_gc_collections_total{gc=\"" + gc.getName() + "\"}",
+                    Math.max(0, gc.getCollectionCount()));
+        }
+        header(sb, "jvm_gc_seconds_total", "counter", "Time spent collecting garbage");
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            sample(sb, "jvm_gc_seconds_total{gc=\"" + gc.getName() + "\"}",
+                    Math.max(0, gc.getCollectionTime()) / 1e3);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Writes a metric with a single value
+     *
+     * @param sb where the text is written
+     * @param name the metric's name
+     * @param type counter or gauge
+     * @param help what the metric means
+     * @param value the value
+     */
+    private static void metric(StringBuilder sb, String name, String type,
+            String help, double value) {
+        header(sb, name, type, help);
+        sample(sb, name, value);
+    }
+
+    /**
+     * Writes the help and type lines of a metric
+     *
+     * @param sb where the text is written
+     * @param name the metric's name
+     * @param type the metric's type
+     * @param help what the metric means
+     */
+    private static void header(StringBuilder sb, String name, String type,
+            String help) {
+        sb.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        sb.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    /**
+     * Writes one sample line
+     *
+     * @param sb where the text is written
+     * @param name the metric's name and labels
+     * @param value the value
+     */
+    private static void sample(StringBuilder sb, String name, double value) {
+        sb.append(name).append(' ');
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            sb.append((long) value);
+        } else {
+            sb.append(value);
+        }
+        sb.append('\n');
+    }
+
+}
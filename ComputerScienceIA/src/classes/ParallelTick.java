@@ -0,0 +1,278 @@
+package classes;
+
+import java.awt.geom.Rectangle2D;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * ParallelTick.java - splits the enemy movement and the laser hit tests of a
+ * large wave into chunks that run on a fork/join pool
+ *
+ * The chunks only read the shared state or write their own slots. Anything
+ * that changes the game (kills, score, game over, sounds) is applied by the
+ * simulation thread afterwards in the same order as the one thread code, so
+ * a game plays out exactly the same either way. The tasks are made once and
+ * reused, so a tick creates no new objects.
+ *
+ * @author Darwin
+ */
+final class ParallelTick {
+
+    // false to always run the tick on one thread (-Dgame.parallel=false)
+    static final boolean ENABLED = !"false".equals(System.getProperty("game.parallel"));
+    // smallest wave worth splitting up
+    static final int MIN_ENEMIES = 10000;
+    // enemies moved by one chunk
+    private static final int ENEMIES_PER_CHUNK = 4096;
+    // fewest lasers worth checking on more than one thread
+    private static final int MIN_LASERS = 4;
+
+    // the pool the chunks run on
+    private final ForkJoinPool pool;
+    // the world's enemies, their grid and the lasers
+    private final Enemies enemies;
+    private final SpatialGrid grid;
+    private final Projectiles lasers;
+    // cell each enemy belongs in after moving (worked out in parallel)
+    private final int[] cells;
+    // lowest bottom edge found by each movement chunk
+    private final double[] bottoms;
+    private final Chunk[] moves;
+    private final Chunk[] hits;
+    private final Fork fork = new Fork();
+    // every hit found, in the order the one thread code finds them
+    int hitCount = 0;
+    int[] hitEnemy = new int[64];
+    // number of candidates the laser's grid search returned (for events)
+    int[] hitCandidates = new int[64];
+
+    /**
+     * constructor for the parallel tick of one world
+     *
+     * @param pool the pool to run on
+     * @param enemies the world's enemies
+     * @param grid the enemies' grid
+     * @param lasers the world's lasers
+     */
+    ParallelTick(ForkJoinPool pool, Enemies enemies, SpatialGrid grid,
+            Projectiles lasers) {
+        this.pool = pool;
+        this.enemies = enemies;
+        this.grid = grid;
+        this.lasers = lasers;
+        cells = new int[enemies.capacity()];
+        int chunks = (enemies.capacity() + ENEMIES_PER_CHUNK - 1) / ENEMIES_PER_CHUNK;
+        bottoms = new double[chunks];
+        moves = new Chunk[chunks];
+        for (int c = 0; c < chunks; c++) {
+            moves[c] = new MoveChunk(c);
+        }
+        hits = new Chunk[pool.getParallelism()];
+        for (int c = 0; c < hits.length; c++) {
+            hits[c] = new HitChunk(c);
+        }
+    }
+
+    /**
+     * Checks if a world is large enough to split its tick up
+     *
+     * @param enemyAmount number of enemies in each wave
+     * @return true if the tick should run in parallel
+     */
+    static boolean worthwhile(int enemyAmount) {
+        return ENABLED && enemyAmount >= MIN_ENEMIES
+                && ForkJoinPool.getCommonPoolParallelism() > 1;
+    }
+
+    /**
+     * Moves every enemy and updates the grid
+     *
+     * @return the lowest bottom edge of a live enemy (for the ground check)
+     */
+    double move() {
+        int chunks = (enemies.count + ENEMIES_PER_CHUNK - 1) / ENEMIES_PER_CHUNK;
+        if (chunks == 0) {
+            return Double.NEGATIVE_INFINITY;
+        }
+        fork.run(moves, chunks);
+        // the grid is updated in enemy order, as the one thread code does
+        for (int k = 0; k < enemies.count; k++) {
+            grid.moveToCell(k, cells[k]);
+        }
+        double bottom = Double.NEGATIVE_INFINITY;
+        for (int c = 0; c < chunks; c++) {
+            bottom = Math.max(bottom, bottoms[c]);
+        }
+        return bottom;
+    }
+
+    /**
+     * Finds the enemies each laser touches (without destroying them)
+     *
+     * @return false if there are too few lasers to split up (nothing was
+     * searched and the caller should check the lasers itself)
+     */
+    boolean findHits() {
+        if (lasers.count < MIN_LASERS) {
+            return false;
+        }
+        int chunks = Math.min(hits.length, lasers.count / 2);
+        fork.run(hits, chunks);
+        // the chunks' hits are joined in laser order
+        hitCount = 0;
+        for (int c = 0; c < chunks; c++) {
+            HitChunk chunk = (HitChunk) hits[c];
+            ensureHitCapacity(hitCount + chunk.count);
+            System.arraycopy(chunk.enemy, 0, hitEnemy, hitCount, chunk.count);
+            System.arraycopy(chunk.candidates, 0, hitCandidates, hitCount, chunk.count);
+            hitCount += chunk.count;
+        }
+        return true;
+    }
+
+    /**
+     * Grows the hit arrays so they can hold the given number of hits
+     *
+     * @param count number of hits
+     */
+    private void ensureHitCapacity(int count) {
+        if (hitEnemy.length < count) {
+            int size = Math.max(count, hitEnemy.length * 2);
+            hitEnemy = Arrays.copyOf(hitEnemy, size);
+            hitCandidates = Arrays.copyOf(hitCandidates, size);
+        }
+    }
+
+    /**
+     * A piece of work that is run again every tick
+     */
+    @SuppressWarnings("serial")
+    private abstract static class Chunk extends RecursiveAction {
+
+        // the chunk's number
+        final int index;
+        // the number of chunks the work is split into this time
+        int of;
+
+        Chunk(int index) {
+            this.index = index;
+        }
+    }
+
+    /**
+     * Moves one range of enemies and works out their new grid cells
+     */
+    @SuppressWarnings("serial")
+    private final class MoveChunk extends Chunk {
+
+        MoveChunk(int index) {
+            super(index);
+        }
+
+        @Override
+        protected void compute() {
+            int from = index * ENEMIES_PER_CHUNK;
+            int to = Math.min(enemies.count, from + ENEMIES_PER_CHUNK);
+            bottoms[index] = enemies.move(from, to);
+            for (int k = from; k < to; k++) {
+                cells[k] = grid.cellAt(enemies.x[k], enemies.y[k]);
+            }
+        }
+    }
+
+    /**
+     * Checks one range of lasers against the enemies near them
+     */
+    @SuppressWarnings("serial")
+    private final class HitChunk extends Chunk {
+
+        // enemies touched and the size of the search that found them
+        int count = 0;
+        int[] enemy = new int[64];
+        int[] candidates = new int[64];
+        // this chunk's own search results and marks
+        private final int[] found = new int[enemies.capacity()];
+        private final long[] seen = new long[(enemies.capacity() + 63) / 64];
+        private final Rectangle2D.Double hitBox = new Rectangle2D.Double();
+
+        HitChunk(int index) {
+            super(index);
+        }
+
+        @Override
+        protected void compute() {
+            count = 0;
+            int from = (int) ((long) lasers.count * index / of);
+            int to = (int) ((long) lasers.count * (index + 1) / of);
+            for (int l = from; l < to; l++) {
+                double x1 = lasers.x[l];
+                double y1 = lasers.y[l];
+                double x2 = x1 + lasers.dx[l];
+                double y2 = y1 + lasers.dy[l];
+                int n = grid.querySegment(x1, y1, x2, y2, found, seen);
+                for (int k = 0; k < n; k++) {
+                    int i = found[k];
+                    hitBox.setRect(enemies.x[i], enemies.y[i], enemies.size[i],
+                            enemies.size[i]);
+                    if (hitBox.intersectsLine(x1, y1, x2, y2)) {
+                        if (count == enemy.length) {
+                            enemy = Arrays.copyOf(enemy, count * 2);
+                            candidates = Arrays.copyOf(candidates, count * 2);
+                        }
+                        enemy[count] = i;
+                        candidates[count] = n;
+                        count++;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Runs a set of chunks on the pool and waits for all of them
+     */
+    @SuppressWarnings("serial")
+    private final class Fork extends RecursiveAction {
+
+        private Chunk[] chunks;
+        private int count;
+
+        /**
+         * Runs the first chunks of an array
+         *
+         * @param chunks the chunks
+         * @param count how many of them to run
+         */
+        void run(Chunk[] chunks, int count) {
+            this.chunks = chunks;
+            this.count = count;
+            for (int c = 0; c < count; c++) {
+                chunks[c].reinitialize();
+                chunks[c].of = count;
+            }
+            reinitialize();
+            if (inForkJoinPool()) {
+                // a world ticked by a pool's task (the wave simulator) splits
+                // its tick within that pool, rather than blocking the task's
+                // thread while another pool runs the chunks
+                invoke();
+            } else {
+                pool.invoke(this);
+            }
+        }
+
+        @Override
+        protected void compute() {
+            for (int c = 1; c < count; c++) {
+                chunks[c].fork();
+            }
+            chunks[0].invoke();
+            for (int c = count - 1; c > 0; c--) {
+                chunks[c].join();
+            }
+        }
+    }
+
+}
@@ -0,0 +1,140 @@
+package classes;
+
+/**
+ * Particles.java - a fixed-size pool of short lived particles (explosion
+ * sparks and engine exhaust) stored in primitive arrays
+ *
+ * Live particles are kept packed at the front of the arrays, like the
+ * lasers in Projectiles, so emitting, moving and removing particles never
+ * creates new objects. Particles are only for show: they never touch the
+ * rest of the game.
+ *
+ * @author Darwin
+ */
+public class Particles {
+
+    // default number of particles that can be alive at once
+    static final int DEFAULT_CAPACITY = 1 << 17;
+    // speed added downwards every tick
+    static final float GRAVITY = 0.1f;
+
+    // positions
+    final float[] x;
+    final float[] y;
+    // distance moved each tick
+    final float[] dx;
+    final float[] dy;
+    // ticks left to live
+    final int[] life;
+    // colour (0xRRGGBB)
+    final int[] rgb;
+    // number of live particles
+    int count = 0;
+
+    /**
+     * Default Constructor
+     */
+    public Particles() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * constructor for a pool of a given size
+     *
+     * @param capacity largest number of particles alive at once
+     */
+    public Particles(int capacity) {
+        x = new float[capacity];
+        y = new float[capacity];
+        dx = new float[capacity];
+        dy = new float[capacity];
+        life = new int[capacity];
+        rgb = new int[capacity];
+    }
+
+    /**
+     * retrieve the largest number of particles alive at once
+     *
+     * @return the capacity
+     */
+    public int capacity() {
+        return x.length;
+    }
+
+    /**
+     * Removes every particle
+     */
+    public void clear() {
+        count = 0;
+    }
+
+    /**
+     * Adds a particle to the pool
+     *
+     * @param startX x coordinate
+     * @param startY y coordinate
+     * @param stepX x distance moved each tick
+     * @param stepY y distance moved each tick
+     * @param ticks ticks the particle lives for
+     * @param colour the particle's colour (0xRRGGBB)
+     * @return false if the pool is full
+     */
+    public boolean emit(double startX, double startY, double stepX,
+            double stepY, int ticks, int colour) {
+        if (count == x.length) {
+            return false;
+        }
+        x[count] = (float) startX;
+        y[count] = (float) startY;
+        dx[count] = (float) stepX;
+        dy[count] = (float) stepY;
+        life[count] = ticks;
+        rgb[count] = colour;
+        count++;
+        return true;
+    }
+
+    /**
+     * Moves every particle and removes the ones whose time is up
+     */
+    public void update() {
+        final float[] xs = x;
+        final float[] ys = y;
+        final float[] dxs = dx;
+        final float[] dys = dy;
+        final int[] lives = life;
+        final int n = count;
+        // the movement loop has no branches, so it is compiled to SIMD
+        for (int k = 0; k < n; k++) {
+            xs[k] += dxs[k];
+            ys[k] += dys[k];
+            dys[k] += GRAVITY;
+            lives[k]--;
+        }
+        // the last particle fills the gap of each one that has died
+        int k = 0;
+        while (k < count) {
+            if (lives[k] > 0) {
+                k++;
+            } else {
+                remove(k);
+            }
+        }
+    }
+
+    /**
+     * Removes a particle by moving the last particle into its place
+     *
+     * @param k the particle to remove
+     */
+    private void remove(int k) {
+        int last = --count;
+        x[k] = x[last];
+        y[k] = y[last];
+        dx[k] = dx[last];
+        dy[k] = dy[last];
+        life[k] = life[last];
+        rgb[k] = rgb[last];
+    }
+
+}
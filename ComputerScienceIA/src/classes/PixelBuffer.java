@@ -0,0 +1,212 @@
+package classes;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+
+/**
+ * PixelBuffer.java - an RGB image whose pixels can be written directly
+ *
+ * Points (stars, radar blips, particles) are plotted straight into the
+ * image's int array with loops that skip anything outside the image, which
+ * is far cheaper than a Java2D draw call for each point. Lines, shapes and
+ * text still go through the image's graphics, which draw into the same
+ * array, so both can be mixed in any order.
+ *
+ * A buffer can also be a band of rows of a larger buffer, sharing its
+ * pixels. A band is drawn on with the larger buffer's coordinates but only
+ * changes its own rows, so bands can be drawn on different threads.
+ *
+ * @author Darwin
+ */
+public class PixelBuffer {
+
+    // the image and its pixels (one int of 0xRRGGBB for each pixel, a row
+    // at a time)
+    private final BufferedImage image;
+    final int[] pixels;
+    final int width;
+    final int height;
+    // the first row of the pixels this buffer covers (0 unless it is a band)
+    final int top;
+    // the image's graphics (kept so drawing creates no new objects)
+    private final Graphics2D graphics;
+
+    /**
+     * constructor for a black buffer of a given size
+     *
+     * @param width width in pixels
+     * @param height height in pixels
+     */
+    public PixelBuffer(int width, int height) {
+        this.width = width;
+        this.height = height;
+        top = 0;
+        image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+        graphics = image.createGraphics();
+    }
+
+    /**
+     * constructor for a band of rows of another buffer
+     *
+     * @param whole the buffer the band is part of
+     * @param top the band's first row
+     * @param height the number of rows in the band
+     */
+    public PixelBuffer(PixelBuffer whole, int top, int height) {
+        width = whole.width;
+        this.height = height;
+        this.top = top;
+        image = whole.image.getSubimage(0, top, width, height);
+        pixels = whole.pixels;
+        graphics = image.createGraphics();
+        // the band is drawn on with the whole buffer's coordinates
+        graphics.translate(0, -top);
+    }
+
+    /**
+     * retrieve the image (to copy it somewhere else)
+     *
+     * @return the image (only the band's rows for a band)
+     */
+    public BufferedImage getImage() {
+        return image;
+    }
+
+    /**
+     * retrieve the graphics that draw into the image
+     *
+     * @return the graphics
+     */
+    public Graphics2D getGraphics() {
+        return graphics;
+    }
+
+    /**
+     * Fills the whole buffer (or band) with one colour
+     *
+     * @param rgb the colour (0xRRGGBB)
+     */
+    public void fill(int rgb) {
+        Arrays.fill(pixels, top * width, (top + height) * width, rgb);
+    }
+
+    /**
+     * Colours one pixel, if it is inside the buffer
+     *
+     * @param x the pixel's column
+     * @param y the pixel's row
+     * @param rgb the colour (0xRRGGBB)
+     */
+    public void plot(int x, int y, int rgb) {
+        // one unsigned compare checks both sides
+        if (Integer.compareUnsigned(x, width) < 0
+                && Integer.compareUnsigned(y - top, height) < 0) {
+            pixels[y * width + x] = rgb;
+        }
+    }
+
+    /**
+     * Colours the pixels under a range of points, skipping points outside
+     * the buffer
+     *
+     * @param xs x coordinates of the points
+     * @param ys y coordinates of the points
+     * @param from the first point
+     * @param to one past the last point
+     * @param originX x coordinate that lands on the buffer's left edge
+     * @param originY y coordinate that lands on the buffer's top edge
+     * @param rgb the colour (0xRRGGBB)
+     */
+    public void plot(double[] xs, double[] ys, int from, int to,
+            double originX, double originY, int rgb) {
+        for (int k = from; k < to; k++) {
+            int x = (int) Math.floor(xs[k] - originX);
+            int y = (int) Math.floor(ys[k] - originY);
+            if (Integer.compareUnsigned(x, width) < 0
+                    && Integer.compareUnsigned(y - top, height) < 0) {
+                pixels[y * width + x] = rgb;
+            }
+        }
+    }
+
+    /**
+     * Colours the pixels under moving points, each pulled back along its
+     * step (so points can be drawn between two ticks), skipping points
+     * outside the buffer
+     *
+     * @param xs x coordinates of the points
+     * @param ys y coordinates of the points
+     * @param dxs x distance each point moves in a tick
+     * @param dys y distance each point moves in a tick
+     * @param rgbs colour of each point (0xRRGGBB)
+     * @param count number of points
+     * @param back how many steps to pull the points back
+     * @param originX x coordinate that lands on the buffer's left edge
+     * @param originY y coordinate that lands on the buffer's top edge
+     */
+    public void plot(float[] xs, float[] ys, float[] dxs, float[] dys,
+            int[] rgbs, int count, double back, double originX, double originY) {
+        final float b = (float) back;
+        final float ox = (float) originX;
+        final float oy = (float) originY;
+        for (int k = 0; k < count; k++) {
+            int x = (int) Math.floor(xs[k] - dxs[k] * b - ox);
+            int y = (int) Math.floor(ys[k] - dys[k] * b - oy);
+            if (Integer.compareUnsigned(x, width) < 0
+                    && Integer.compareUnsigned(y - top, height) < 0) {
+                pixels[y * width + x] = rgbs[k];
+            }
+        }
+    }
+
+    /**
+     * Colours the pixels under some of the moving points, in the order they
+     * are listed (see the plot above for the rest)
+     *
+     * @param order the points to colour
+     * @param n number of points in order
+     * @param xs x coordinates of the points
+     * @param ys y coordinates of the points
+     * @param dxs x distance each point moves in a tick
+     * @param dys y distance each point moves in a tick
+     * @param rgbs colour of each point (0xRRGGBB)
+     * @param back how many steps to pull the points back
+     * @param originX x coordinate that lands on the buffer's left edge
+     * @param originY y coordinate that lands on the buffer's top edge
+     */
+    public void plot(int[] order, int n, float[] xs, float[] ys, float[] dxs,
+            float[] dys, int[] rgbs, double back, double originX, double originY) {
+        final float b = (float) back;
+        final float ox = (float) originX;
+        final float oy = (float) originY;
+        for (int j = 0; j < n; j++) {
+            int k = order[j];
+            int x = (int) Math.floor(xs[k] - dxs[k] * b - ox);
+            int y = (int) Math.floor(ys[k] - dys[k] * b - oy);
+            if (Integer.compareUnsigned(x, width) < 0
+                    && Integer.compareUnsigned(y - top, height) < 0) {
+                pixels[y * width + x] = rgbs[k];
+            }
+        }
+    }
+
+    /**
+     * Colours a small fixed pattern of pixels (a sprite with one colour),
+     * clipping the parts outside the buffer
+     *
+     * @param x column of the pattern's top left corner
+     * @param y row of the pattern's top left corner
+     * @param dx columns of the pattern's pixels
+     * @param dy rows of the pattern's pixels
+     * @param rgb the colour (0xRRGGBB)
+     */
+    public void stamp(int x, int y, int[] dx, int[] dy, int rgb) {
+        for (int k = 0; k < dx.length; k++) {
+            plot(x + dx[k], y + dy[k], rgb);
+        }
+    }
+
+}
@@ -0,0 +1,124 @@
+package classes;
+
+import java.awt.geom.Rectangle2D;
+
+/**
+ * Projectiles.java - a fixed-size pool of lasers stored in primitive arrays
+ *
+ * Live lasers are kept packed at the front of the arrays, so firing, moving
+ * and removing lasers never creates new objects.
+ *
+ * @author Darwin
+ */
+public class Projectiles {
+
+    // default number of lasers that can be in flight at once
+    static final int DEFAULT_CAPACITY = 512;
+
+    // laser start points
+    final double[] x;
+    final double[] y;
+    // distance travelled each tick (also the length of the laser)
+    final double[] dx;
+    final double[] dy;
+    // number of times each laser has moved
+    final int[] age;
+    // number of lasers in flight
+    int count = 0;
+
+    /**
+     * Default Constructor
+     */
+    public Projectiles() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * constructor for a pool of a given size
+     *
+     * @param capacity largest number of lasers in flight at once
+     */
+    public Projectiles(int capacity) {
+        x = new double[capacity];
+        y = new double[capacity];
+        dx = new double[capacity];
+        dy = new double[capacity];
+        age = new int[capacity];
+    }
+
+    /**
+     * retrieve the largest number of lasers in flight at once
+     *
+     * @return the capacity
+     */
+    public int capacity() {
+        return x.length;
+    }
+
+    /**
+     * Removes every laser
+     */
+    public void clear() {
+        count = 0;
+    }
+
+    /**
+     * Adds a laser to the pool
+     *
+     * @param startX x coordinate of the laser's start
+     * @param startY y coordinate of the laser's start
+     * @param stepX x distance travelled each tick
+     * @param stepY y distance travelled each tick
+     * @return false if the pool is full
+     */
+    public boolean fire(double startX, double startY, double stepX, double stepY) {
+        if (count == x.length) {
+            return false;
+        }
+        x[count] = startX;
+        y[count] = startY;
+        dx[count] = stepX;
+        dy[count] = stepY;
+        age[count] = 0;
+        count++;
+        return true;
+    }
+
+    /**
+     * Moves every laser forward by its own length, removing lasers that have
+     * left the playing zone
+     *
+     * @param zone the playing zone
+     */
+    public void move(Rectangle2D zone) {
+        int i = 0;
+        while (i < count) {
+            // check if the laser is within the boundaries of the playing zone
+            if (zone.contains(x[i], y[i])) {
+                // laser keeps moving
+                x[i] += dx[i];
+                y[i] += dy[i];
+                age[i]++;
+                i++;
+            } else {
+                // the last laser fills the gap
+                remove(i);
+            }
+        }
+    }
+
+    /**
+     * Removes a laser by moving the last laser into its place
+     *
+     * @param i the laser to remove
+     */
+    private void remove(int i) {
+        int last = --count;
+        x[i] = x[last];
+        y[i] = y[last];
+        dx[i] = dx[last];
+        dy[i] = dy[last];
+        age[i] = age[last];
+    }
+
+}
@@ -0,0 +1,105 @@
+package classes;
+
+import java.awt.DisplayMode;
+import java.awt.GraphicsEnvironment;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * RenderLoop.java - requests frames on its own thread, independent of the
+ * simulation rate
+ *
+ * @author Darwin
+ */
+public class RenderLoop implements Runnable {
+
+    // frame rate used when the display does not report one
+    private static final int DEFAULT_FPS = 60;
+
+    // draws (or requests) one frame and returns once it is done
+    private final Runnable frame;
+    // time between frames in nanoseconds (0 means uncapped)
+    private final long frameNanos;
+    // the render thread
+    private Thread thread;
+    private volatile boolean running = false;
+
+    /**
+     * constructor for a render loop
+     *
+     * @param frame draws one frame
+     * @param targetFps frames per second (0 for uncapped, negative to match
+     * the display's refresh rate)
+     */
+    public RenderLoop(Runnable frame, int targetFps) {
+        this.frame = frame;
+        if (targetFps < 0) {
+            targetFps = displayRefreshRate();
+        }
+        frameNanos = targetFps == 0 ? 0 : 1_000_000_000L / targetFps;
+    }
+
+    /**
+     * retrieve the refresh rate of the default screen
+     *
+     * @return the refresh rate in hertz
+     */
+    static int displayRefreshRate() {
+        if (GraphicsEnvironment.isHeadless()) {
+            return DEFAULT_FPS;
+        }
+        int rate = GraphicsEnvironment.getLocalGraphicsEnvironment()
+                .getDefaultScreenDevice().getDisplayMode().getRefreshRate();
+        return rate == DisplayMode.REFRESH_RATE_UNKNOWN ? DEFAULT_FPS : rate;
+    }
+
+    /**
+     * Starts the render thread
+     */
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        thread = new Thread(this, "render");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stops the render thread (waits for it unless called from it)
+     */
+    public synchronized void stop() {
+        running = false;
+        if (thread != null && thread != Thread.currentThread()) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        thread = null;
+    }
+
+    /**
+     * The frame pacing loop
+     */
+    @Override
+    public void run() {
+        long next = System.nanoTime();
+        while (running) {
+            frame.run();
+            if (frameNanos > 0) {
+                // wait until the next frame is due
+                next += frameNanos;
+                long wait = next - System.nanoTime();
+                if (wait > 0) {
+                    LockSupport.parkNanos(wait);
+                } else {
+                    // a late frame does not cause a burst of catch-up frames
+                    next = System.nanoTime();
+                }
+            }
+        }
+    }
+
+}
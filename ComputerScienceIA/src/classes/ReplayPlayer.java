@@ -0,0 +1,153 @@
+package classes;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * ReplayPlayer.java - plays a game recorded by InputRecorder again without a
+ * display, as fast as possible or at a multiple of real time
+ *
+ * @author Darwin
+ */
+public class ReplayPlayer {
+
+    // number of ticks between checks of the playback speed
+    private static final int PACE_TICKS = 64;
+
+    // the recorded game
+    private final int enemyAmount;
+    private final long seed;
+    private long[] eventTicks = new long[64];
+    private int[] eventCodes = new int[64];
+    private int eventCount = 0;
+    private long endTick;
+    private long expectedChecksum;
+    // the world the game is played in
+    private final World world;
+
+    /**
+     * Reads a recording
+     *
+     * @param file the recording
+     * @throws IOException if the file cannot be read or is not a recording
+     */
+    public ReplayPlayer(File file) throws IOException {
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != InputRecorder.MAGIC
+                    || in.readByte() != InputRecorder.VERSION) {
+                throw new IOException(file + " is not a recording");
+            }
+            enemyAmount = in.readInt();
+            int zoneSize = in.readInt();
+            if (zoneSize != World.ZONE_SIZE) {
+                throw new IOException(file + " was recorded with -Dgame.zone="
+                        + zoneSize);
+            }
+            seed = in.readLong();
+            long tick = 0;
+            while (true) {
+                tick += readVarint(in);
+                int code = (int) readVarint(in);
+                if (code == InputRecorder.END) {
+                    endTick = tick;
+                    break;
+                }
+                if (eventCount == eventTicks.length) {
+                    eventTicks = Arrays.copyOf(eventTicks, eventCount * 2);
+                    eventCodes = Arrays.copyOf(eventCodes, eventCount * 2);
+                }
+                eventTicks[eventCount] = tick;
+                eventCodes[eventCount] = code;
+                eventCount++;
+            }
+            expectedChecksum = in.readLong();
+        } catch (EOFException e) {
+            throw new IOException(file + " ends early", e);
+        }
+        world = new World(enemyAmount);
+    }
+
+    /**
+     * retrieve the world the game is played in (to attach a profiler)
+     *
+     * @return the world
+     */
+    public World getWorld() {
+        return world;
+    }
+
+    /**
+     * Plays the recorded game and prints how it ended
+     *
+     * @param speed multiple of real time to play at (0 or less plays as fast
+     * as possible)
+     * @return true if the game ended exactly as it did when it was recorded
+     */
+    public boolean play(double speed) {
+        world.load(seed);
+        long tickNanos = speed > 0 ? (long) (GameLoop.TICK_NANOS / speed) : 0;
+        long start = System.nanoTime();
+        int next = 0;
+        while (world.tick < endTick && !world.lost) {
+            // apply the key events of this tick, like the game loop does
+            while (next < eventCount && eventTicks[next] == world.tick) {
+                int code = eventCodes[next++];
+                int keyCode = code / 2 - 1;
+                if (code % 2 == 1) {
+                    world.keyPressed(keyCode);
+                } else {
+                    world.keyReleased(keyCode);
+                }
+            }
+            world.tick();
+            // wait if playback is ahead of the requested speed
+            if (tickNanos > 0 && world.tick % PACE_TICKS == 0) {
+                long ahead = start + world.tick * tickNanos - System.nanoTime();
+                if (ahead > 0) {
+                    LockSupport.parkNanos(ahead);
+                }
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        boolean matched = world.tick == endTick
+                && world.checksum() == expectedChecksum;
+        // report the results
+        System.out.println("seed: " + seed);
+        System.out.println("enemies per wave: " + enemyAmount);
+        System.out.println("key events: " + eventCount);
+        System.out.println("ticks: " + world.tick + " of " + endTick);
+        System.out.println("score: " + world.score + ", wave: " + world.waveNumber);
+        System.out.printf("elapsed: %.3f s (%.0fx real time)%n", seconds,
+                world.tick * (GameLoop.TICK_NANOS / 1e9) / Math.max(seconds, 1e-9));
+        System.out.println(matched ? "replay matches the recording"
+                : "replay DIFFERS from the recording");
+        return matched;
+    }
+
+    /**
+     * Reads a number written by InputRecorder.writeVarint
+     *
+     * @param in the stream to read from
+     * @return the number
+     * @throws IOException if the stream ends early
+     */
+    private static long readVarint(DataInputStream in) throws IOException {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = in.readByte();
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+
+}
@@ -0,0 +1,266 @@
+package classes;
+
+import java.awt.geom.Rectangle2D;
+import java.util.Arrays;
+
+/**
+ * Scenery.java - the stars and buildings of the playing zone, split into
+ * square chunks that are made from a seed the first time they are needed
+ *
+ * A chunk always comes out the same for the same seed, so chunks far from
+ * the camera can be thrown away and made again later. Only the most
+ * recently used chunks are kept, in a fixed pool of primitive arrays, so
+ * the memory used does not depend on the size of the zone and making a
+ * chunk creates no new objects.
+ *
+ * @author Darwin
+ */
+public class Scenery {
+
+    // width and height of a chunk
+    static final int CHUNK_SIZE = 1000;
+    // stars in a chunk (one for every 25000 square units, as before)
+    static final int STARS_PER_CHUNK = 40;
+    // buildings in a chunk that touches the ground (ten across 5000 units)
+    static final int BUILDINGS_PER_CHUNK = 2;
+    // smallest and largest building heights
+    static final int MIN_BUILDING_HEIGHT = 100;
+    static final int MAX_BUILDING_HEIGHT = World.MAX_BUILDING_HEIGHT;
+    // default number of chunks kept
+    static final int DEFAULT_CAPACITY = 64;
+    // marks an empty bucket or the end of a list
+    private static final int NONE = -1;
+
+    // chunk x and y of each slot, packed into one number
+    private final long[] key;
+    // hash buckets of the cached chunks
+    private final int[] bucket;
+    private final int[] chain;
+    // the slots from the most to the least recently used
+    private final int[] older;
+    private final int[] newer;
+    private int newest = NONE;
+    private int oldest = NONE;
+    // number of slots in use
+    private int used = 0;
+    // stars of each slot (slot * STARS_PER_CHUNK onwards)
+    final double[] starX;
+    final double[] starY;
+    final int[] starCount;
+    // buildings of each slot (slot * BUILDINGS_PER_CHUNK onwards)
+    final double[] buildingX;
+    final double[] buildingY;
+    final double[] buildingWidth;
+    final double[] buildingHeight;
+    final int[] buildingCount;
+    // the zone the scenery fills and the seed it is made from
+    private final Rectangle2D.Double zone = new Rectangle2D.Double();
+    private long seed;
+    // makes the contents of a chunk
+    private final GameRandom random = new GameRandom(0);
+
+    /**
+     * Default Constructor
+     */
+    public Scenery() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * constructor for a cache of a given size
+     *
+     * @param capacity largest number of chunks kept at once
+     */
+    public Scenery(int capacity) {
+        key = new long[capacity];
+        bucket = new int[Integer.highestOneBit(capacity * 2 - 1) * 2];
+        chain = new int[capacity];
+        older = new int[capacity];
+        newer = new int[capacity];
+        starX = new double[capacity * STARS_PER_CHUNK];
+        starY = new double[capacity * STARS_PER_CHUNK];
+        starCount = new int[capacity];
+        buildingX = new double[capacity * BUILDINGS_PER_CHUNK];
+        buildingY = new double[capacity * BUILDINGS_PER_CHUNK];
+        buildingWidth = new double[capacity * BUILDINGS_PER_CHUNK];
+        buildingHeight = new double[capacity * BUILDINGS_PER_CHUNK];
+        buildingCount = new int[capacity];
+        reset(new Rectangle2D.Double(), 0);
+    }
+
+    /**
+     * Forgets every chunk and starts making the scenery of another zone or
+     * seed
+     *
+     * @param area the playing zone
+     * @param seed the scenery's seed
+     */
+    public final void reset(Rectangle2D area, long seed) {
+        zone.setRect(area);
+        this.seed = seed;
+        Arrays.fill(bucket, NONE);
+        newest = NONE;
+        oldest = NONE;
+        used = 0;
+    }
+
+    /**
+     * retrieve the seed the scenery is made from
+     *
+     * @return the seed
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Finds a chunk, making it if it is not kept (the least recently used
+     * chunk is thrown away to make room, so a slot stays valid until
+     * capacity more chunks have been asked for)
+     *
+     * @param cx the chunk's column (x / CHUNK_SIZE rounded down)
+     * @param cy the chunk's row (y / CHUNK_SIZE rounded down)
+     * @return the chunk's slot, or NONE if the chunk is outside the zone
+     */
+    public int chunk(int cx, int cy) {
+        if (cx * (double) CHUNK_SIZE >= zone.getMaxX()
+                || (cx + 1) * (double) CHUNK_SIZE <= zone.getMinX()
+                || cy * (double) CHUNK_SIZE >= zone.getMaxY()
+                || (cy + 1) * (double) CHUNK_SIZE <= zone.getMinY()) {
+            return NONE;
+        }
+        long k = (long) cx << 32 | (cy & 0xFFFFFFFFL);
+        int b = (int) GameRandom.mix(k) & (bucket.length - 1);
+        for (int s = bucket[b]; s != NONE; s = chain[s]) {
+            if (key[s] == k) {
+                touch(s);
+                return s;
+            }
+        }
+        int s;
+        if (used < key.length) {
+            s = used++;
+        } else {
+            // the least recently used chunk makes way
+            s = oldest;
+            unlinkUse(s);
+            unhash(s);
+        }
+        key[s] = k;
+        chain[s] = bucket[b];
+        bucket[b] = s;
+        linkUse(s);
+        make(s, cx, cy);
+        return s;
+    }
+
+    /**
+     * Fills a slot with the stars and buildings of a chunk
+     *
+     * @param s the slot
+     * @param cx the chunk's column
+     * @param cy the chunk's row
+     */
+    private void make(int s, int cx, int cy) {
+        random.setSeed(GameRandom.mix(seed ^ key[s]));
+        double left = cx * (double) CHUNK_SIZE;
+        double top = cy * (double) CHUNK_SIZE;
+        // stars are scattered over the chunk (ones outside the zone are not
+        // kept, so zones that are not whole chunks have the same density)
+        int n = 0;
+        for (int i = 0; i < STARS_PER_CHUNK; i++) {
+            double x = left + random.nextDouble() * CHUNK_SIZE;
+            double y = top + random.nextDouble() * CHUNK_SIZE;
+            if (zone.contains(x, y)) {
+                starX[s * STARS_PER_CHUNK + n] = x;
+                starY[s * STARS_PER_CHUNK + n] = y;
+                n++;
+            }
+        }
+        starCount[s] = n;
+        // buildings stand on the ground, so only the bottom row has them
+        n = 0;
+        if (top < zone.getMaxY() && top + CHUNK_SIZE >= zone.getMaxY()) {
+            for (int i = 0; i < BUILDINGS_PER_CHUNK; i++) {
+                double height = MIN_BUILDING_HEIGHT
+                        + random.nextDouble() * (MAX_BUILDING_HEIGHT - MIN_BUILDING_HEIGHT);
+                double width = height / (2 + random.nextDouble());
+                double x = left + random.nextDouble() * CHUNK_SIZE;
+                if (x + width <= zone.getMaxX()) {
+                    buildingX[s * BUILDINGS_PER_CHUNK + n] = x;
+                    buildingY[s * BUILDINGS_PER_CHUNK + n] = zone.getMaxY() - height;
+                    buildingWidth[s * BUILDINGS_PER_CHUNK + n] = width;
+                    buildingHeight[s * BUILDINGS_PER_CHUNK + n] = height;
+                    n++;
+                }
+            }
+        }
+        buildingCount[s] = n;
+    }
+
+    /**
+     * Moves a slot to the front of the use list
+     *
+     * @param s the slot
+     */
+    private void touch(int s) {
+        if (newest != s) {
+            unlinkUse(s);
+            linkUse(s);
+        }
+    }
+
+    /**
+     * Adds a slot to the front of the use list
+     *
+     * @param s the slot
+     */
+    private void linkUse(int s) {
+        older[s] = newest;
+        newer[s] = NONE;
+        if (newest != NONE) {
+            newer[newest] = s;
+        } else {
+            oldest = s;
+        }
+        newest = s;
+    }
+
+    /**
+     * Takes a slot out of the use list
+     *
+     * @param s the slot
+     */
+    private void unlinkUse(int s) {
+        if (newer[s] != NONE) {
+            older[newer[s]] = older[s];
+        } else {
+            newest = older[s];
+        }
+        if (older[s] != NONE) {
+            newer[older[s]] = newer[s];
+        } else {
+            oldest = newer[s];
+        }
+    }
+
+    /**
+     * Takes a slot out of its hash bucket
+     *
+     * @param s the slot
+     */
+    private void unhash(int s) {
+        int b = (int) GameRandom.mix(key[s]) & (bucket.length - 1);
+        if (bucket[b] == s) {
+            bucket[b] = chain[s];
+            return;
+        }
+        for (int t = bucket[b]; t != NONE; t = chain[t]) {
+            if (chain[t] == s) {
+                chain[t] = chain[s];
+                return;
+            }
+        }
+    }
+
+}
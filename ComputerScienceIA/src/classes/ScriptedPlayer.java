@@ -0,0 +1,153 @@
+package classes;
+
+import java.awt.event.KeyEvent;
+
+/**
+ * ScriptedPlayer.java - a simple computer player used by the wave simulator
+ *
+ * It hovers above the city, turns the drone towards the enemy closest to the
+ * ground and shoots it, and lands to refill its ammo when it runs out. It
+ * only uses the same key presses a person would, so the game rules are not
+ * changed.
+ *
+ * @author Darwin
+ */
+public class ScriptedPlayer {
+
+    // height the drone hovers at (y coordinate, the ground is at 0)
+    private static final double HOVER_Y = -1500;
+    // furthest the drone leans from upright (it cannot hover past 60 degrees)
+    private static final double MAX_TILT = 55;
+    // the drone is aimed once it is this close to the wanted angle
+    private static final double AIM_DEGREES = 2;
+    // ticks between shots (firing faster wastes the ammo)
+    private static final int FIRE_TICKS = 10;
+    // speed of a laser in pixels per tick
+    private static final double LASER_SPEED = 100;
+
+    // keys currently held down
+    private boolean up = false;
+    private boolean down = false;
+    private boolean left = false;
+    private boolean right = false;
+    // true while landed to refill the ammo
+    private boolean refilling = false;
+    // ticks until the next shot is allowed
+    private int cooldown = 0;
+
+    /**
+     * Forgets the keys held in the previous game
+     */
+    public void reset() {
+        up = false;
+        down = false;
+        left = false;
+        right = false;
+        refilling = false;
+        cooldown = 0;
+    }
+
+    /**
+     * Presses and releases keys for the next tick
+     *
+     * @param world the world being played
+     */
+    public void play(World world) {
+        double x = world.drone.getX() + World.DRONE_SIZE / 2;
+        double y = world.drone.getY() + World.DRONE_SIZE / 2;
+        // land when the ammo runs out and take off again once it is full
+        if (world.ammo == 0) {
+            refilling = true;
+        } else if (world.ammo == 50) {
+            refilling = false;
+        }
+        // the enemy closest to the ground is the target
+        Enemies e = world.enemies;
+        int target = -1;
+        for (int k = 0; k < e.count; k++) {
+            if (target < 0 || e.y[k] + e.size[k] > e.y[target] + e.size[target]) {
+                target = k;
+            }
+        }
+        double wanted = 0;
+        int direction = 0;
+        if (target >= 0) {
+            // lead the target by the time the laser takes to reach it
+            double dx = e.x[target] + e.size[target] / 2 - x;
+            double dy = e.y[target] + e.size[target] / 2 - y;
+            dy += e.dy[target] * Math.hypot(dx, dy) / LASER_SPEED;
+            double aim = Math.toDegrees(Math.atan2(dy, dx));
+            // shoot right along the drone's angle or left against it,
+            // whichever needs less leaning
+            direction = 1;
+            if (Math.abs(aim) > 90) {
+                aim = normalize(aim + 180);
+                direction = -1;
+            }
+            if (Math.abs(aim) > MAX_TILT) {
+                // too steep to hover while aiming, lean as far as possible
+                aim = Math.copySign(MAX_TILT, aim);
+                direction = 0;
+            }
+            wanted = aim;
+        }
+        // turn towards the wanted angle
+        double error = wanted - normalize(world.drone.getAngle());
+        boolean turnLeft = error < -AIM_DEGREES;
+        boolean turnRight = error > AIM_DEGREES;
+        // climb when falling faster than wanted, otherwise cut the thrust
+        double climb = refilling ? 4 : Math.max(-4, Math.min(4, (HOVER_Y - y) * 0.05));
+        boolean thrust = world.yDelta > climb;
+        // keys are released before others are pressed, since releasing A, D,
+        // W or S undoes the press of its partner
+        if (!turnLeft && left) {
+            world.keyReleased(KeyEvent.VK_A);
+        }
+        if (!turnRight && right) {
+            world.keyReleased(KeyEvent.VK_D);
+        }
+        if (!thrust && up) {
+            world.keyReleased(KeyEvent.VK_W);
+        }
+        if (thrust && down) {
+            world.keyReleased(KeyEvent.VK_S);
+        }
+        if (turnLeft && !left) {
+            world.keyPressed(KeyEvent.VK_A);
+        }
+        if (turnRight && !right) {
+            world.keyPressed(KeyEvent.VK_D);
+        }
+        if (thrust && !up) {
+            world.keyPressed(KeyEvent.VK_W);
+        }
+        if (!thrust && !down) {
+            world.keyPressed(KeyEvent.VK_S);
+        }
+        left = turnLeft;
+        right = turnRight;
+        up = thrust;
+        down = !thrust;
+        // shoot once the drone is aimed (lasers are fired on release)
+        if (cooldown > 0) {
+            cooldown--;
+        } else if (direction != 0 && !refilling && world.ammo > 0
+                && Math.abs(error) <= AIM_DEGREES) {
+            int key = direction > 0 ? KeyEvent.VK_RIGHT : KeyEvent.VK_LEFT;
+            world.keyPressed(key);
+            world.keyReleased(key);
+            cooldown = FIRE_TICKS;
+        }
+    }
+
+    /**
+     * Brings an angle into the range -180 to 180 degrees
+     *
+     * @param degrees the angle
+     * @return the same angle from -180 to 180
+     */
+    private static double normalize(double degrees) {
+        return Math.IEEEremainder(degrees, 360);
+    }
+
+}
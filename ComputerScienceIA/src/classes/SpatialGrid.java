@@ -0,0 +1,394 @@
+package classes;
+
+import java.awt.geom.Rectangle2D;
+import java.util.Arrays;
+
+/**
+ * SpatialGrid.java - a uniform grid that finds the objects near a rectangle
+ * or a line segment without checking every object
+ *
+ * Objects are numbered 0 to capacity - 1 and are stored in the cell that
+ * holds their top left corner. Objects outside the grid are kept in the
+ * nearest edge cell. Queries return candidates, so callers still do an exact
+ * intersection test.
+ *
+ * @author Darwin
+ */
+public class SpatialGrid {
+
+    // marks an empty cell or the end of a cell's list
+    private static final int NONE = -1;
+
+    // grid dimensions
+    private final double minX;
+    private final double minY;
+    private final double cellSize;
+    private final int cols;
+    private final int rows;
+    // largest width or height of a stored object
+    private final double maxExtent;
+    // number of neighbouring cells an object can reach into
+    private final int reach;
+    // first object in each cell
+    private final int[] head;
+    // doubly linked lists of the objects in each cell
+    private final int[] next;
+    private final int[] prev;
+    // cell each object is stored in (NONE if it is not in the grid)
+    private final int[] cellOf;
+    // last query each object was returned by (stops segment duplicates)
+    private final int[] stamp;
+    private int query = 0;
+
+    /**
+     * constructor for a grid
+     *
+     * @param bounds the area covered by the grid
+     * @param cellSize width and height of a cell
+     * @param capacity largest object number plus one
+     * @param maxExtent largest width or height of a stored object
+     */
+    public SpatialGrid(Rectangle2D bounds, double cellSize, int capacity,
+            double maxExtent) {
+        this.minX = bounds.getMinX();
+        this.minY = bounds.getMinY();
+        this.cellSize = cellSize;
+        this.cols = Math.max(1, (int) Math.ceil(bounds.getWidth() / cellSize));
+        this.rows = Math.max(1, (int) Math.ceil(bounds.getHeight() / cellSize));
+        this.maxExtent = maxExtent;
+        this.reach = (int) Math.ceil(maxExtent / cellSize);
+        head = new int[cols * rows];
+        next = new int[capacity];
+        prev = new int[capacity];
+        cellOf = new int[capacity];
+        stamp = new int[capacity];
+        clear();
+    }
+
+    /**
+     * retrieve the largest object number plus one
+     *
+     * @return the capacity
+     */
+    public int capacity() {
+        return cellOf.length;
+    }
+
+    /**
+     * Removes every object from the grid
+     */
+    public final void clear() {
+        Arrays.fill(head, NONE);
+        Arrays.fill(cellOf, NONE);
+    }
+
+    /**
+     * Adds an object to the grid
+     *
+     * @param id the object number
+     * @param x the object's left edge
+     * @param y the object's top edge
+     */
+    public void insert(int id, double x, double y) {
+        if (cellOf[id] != NONE) {
+            remove(id);
+        }
+        link(id, cellIndex(column(x), row(y)));
+    }
+
+    /**
+     * Updates an object's position, moving it to another cell if needed
+     *
+     * @param id the object number
+     * @param x the object's left edge
+     * @param y the object's top edge
+     */
+    public void move(int id, double x, double y) {
+        moveToCell(id, cellAt(x, y));
+    }
+
+    /**
+     * Finds the cell an object with its top left corner at a point is stored
+     * in (safe to call from several threads while the grid is not changing)
+     *
+     * @param x the object's left edge
+     * @param y the object's top edge
+     * @return the cell index
+     */
+    public int cellAt(double x, double y) {
+        return cellIndex(column(x), row(y));
+    }
+
+    /**
+     * Moves an object to a cell found with cellAt, if it is not already there
+     *
+     * @param id the object number
+     * @param cell the cell index
+     */
+    public void moveToCell(int id, int cell) {
+        if (cellOf[id] != cell) {
+            if (cellOf[id] != NONE) {
+                unlink(id);
+            }
+            link(id, cell);
+        }
+    }
+
+    /**
+     * Gives an object a new number, keeping its place in its cell (the new
+     * number must not be in the grid)
+     *
+     * @param from the object's number
+     * @param to the object's new number
+     */
+    public void rename(int from, int to) {
+        int cell = cellOf[from];
+        cellOf[to] = cell;
+        if (cell == NONE) {
+            return;
+        }
+        next[to] = next[from];
+        prev[to] = prev[from];
+        if (prev[to] != NONE) {
+            next[prev[to]] = to;
+        } else {
+            head[cell] = to;
+        }
+        if (next[to] != NONE) {
+            prev[next[to]] = to;
+        }
+        cellOf[from] = NONE;
+    }
+
+    /**
+     * Takes an object out of the grid
+     *
+     * @param id the object number
+     */
+    public void remove(int id) {
+        if (cellOf[id] != NONE) {
+            unlink(id);
+        }
+    }
+
+    /**
+     * Finds the objects that may overlap a rectangle
+     *
+     * @param x1 left edge
+     * @param y1 top edge
+     * @param x2 right edge
+     * @param y2 bottom edge
+     * @param out receives the object numbers (must hold capacity() entries)
+     * @return the number of objects found
+     */
+    public int queryRect(double x1, double y1, double x2, double y2, int[] out) {
+        // objects are stored by their top left corner, so the search starts
+        // one object size above and to the left of the rectangle
+        int c1 = column(x1 - maxExtent);
+        int r1 = row(y1 - maxExtent);
+        int c2 = column(x2);
+        int r2 = row(y2);
+        int count = 0;
+        for (int r = r1; r <= r2; r++) {
+            for (int c = c1; c <= c2; c++) {
+                for (int id = head[cellIndex(c, r)]; id != NONE; id = next[id]) {
+                    out[count++] = id;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Finds the objects that may touch a line segment by walking the cells
+     * the segment passes through
+     *
+     * @param x1 start x
+     * @param y1 start y
+     * @param x2 end x
+     * @param y2 end y
+     * @param out receives the object numbers (must hold capacity() entries)
+     * @return the number of objects found
+     */
+    public int querySegment(double x1, double y1, double x2, double y2, int[] out) {
+        return querySegment(x1, y1, x2, y2, out, null);
+    }
+
+    /**
+     * Finds the objects that may touch a line segment, marking the objects
+     * already found in a bit set owned by the caller instead of the grid (so
+     * several threads can search at once while the grid is not changing)
+     *
+     * @param x1 start x
+     * @param y1 start y
+     * @param x2 end x
+     * @param y2 end y
+     * @param out receives the object numbers (must hold capacity() entries)
+     * @param seen capacity() bits, all clear (they are clear again on return),
+     * or null to use the grid's own marks
+     * @return the number of objects found
+     */
+    public int querySegment(double x1, double y1, double x2, double y2, int[] out,
+            long[] seen) {
+        // segments leaving the grid fall back to a rectangle search
+        if (!inside(x1, y1) || !inside(x2, y2)) {
+            return queryRect(Math.min(x1, x2), Math.min(y1, y2),
+                    Math.max(x1, x2), Math.max(y1, y2), out);
+        }
+        if (seen == null) {
+            query++;
+        }
+        int count = 0;
+        int c = column(x1);
+        int r = row(y1);
+        int endC = column(x2);
+        int endR = row(y2);
+        double dx = x2 - x1;
+        double dy = y2 - y1;
+        int stepC = dx > 0 ? 1 : -1;
+        int stepR = dy > 0 ? 1 : -1;
+        // distance along the segment (0 to 1) to the next column and row lines
+        double tDeltaC = dx == 0 ? Double.POSITIVE_INFINITY : Math.abs(cellSize / dx);
+        double tDeltaR = dy == 0 ? Double.POSITIVE_INFINITY : Math.abs(cellSize / dy);
+        double nextLineX = minX + (c + (dx > 0 ? 1 : 0)) * cellSize;
+        double nextLineY = minY + (r + (dy > 0 ? 1 : 0)) * cellSize;
+        double tMaxC = dx == 0 ? Double.POSITIVE_INFINITY : (nextLineX - x1) / dx;
+        double tMaxR = dy == 0 ? Double.POSITIVE_INFINITY : (nextLineY - y1) / dy;
+        while (true) {
+            count = collectNear(c, r, out, count, seen);
+            if (c == endC && r == endR) {
+                break;
+            }
+            // step into whichever neighbouring cell the segment reaches first
+            if (tMaxC < tMaxR) {
+                if (tMaxC > 1) {
+                    break;
+                }
+                c += stepC;
+                tMaxC += tDeltaC;
+            } else {
+                if (tMaxR > 1) {
+                    break;
+                }
+                r += stepR;
+                tMaxR += tDeltaR;
+            }
+        }
+        if (seen != null) {
+            for (int k = 0; k < count; k++) {
+                seen[out[k] >>> 6] &= ~(1L << out[k]);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Adds the objects that can reach into a cell, skipping ones already found
+     *
+     * @param c the cell's column
+     * @param r the cell's row
+     * @param out receives the object numbers
+     * @param count number of objects already in out
+     * @param seen the caller's marks (null to use the grid's own marks)
+     * @return the new number of objects in out
+     */
+    private int collectNear(int c, int r, int[] out, int count, long[] seen) {
+        for (int rr = Math.max(0, r - reach); rr <= r; rr++) {
+            for (int cc = Math.max(0, c - reach); cc <= c; cc++) {
+                for (int id = head[rr * cols + cc]; id != NONE; id = next[id]) {
+                    if (seen != null) {
+                        if ((seen[id >>> 6] & (1L << id)) == 0) {
+                            seen[id >>> 6] |= 1L << id;
+                            out[count++] = id;
+                        }
+                    } else if (stamp[id] != query) {
+                        stamp[id] = query;
+                        out[count++] = id;
+                    }
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Checks if a point lies within the grid
+     *
+     * @param x the point's x coordinate
+     * @param y the point's y coordinate
+     * @return true if the point is inside
+     */
+    private boolean inside(double x, double y) {
+        return x >= minX && y >= minY
+                && x <= minX + cols * cellSize && y <= minY + rows * cellSize;
+    }
+
+    /**
+     * Finds the column holding an x coordinate (clamped to the grid)
+     *
+     * @param x the x coordinate
+     * @return the column
+     */
+    private int column(double x) {
+        int c = (int) Math.floor((x - minX) / cellSize);
+        return c < 0 ? 0 : (c >= cols ? cols - 1 : c);
+    }
+
+    /**
+     * Finds the row holding a y coordinate (clamped to the grid)
+     *
+     * @param y the y coordinate
+     * @return the row
+     */
+    private int row(double y) {
+        int r = (int) Math.floor((y - minY) / cellSize);
+        return r < 0 ? 0 : (r >= rows ? rows - 1 : r);
+    }
+
+    /**
+     * Converts a column and row into an index into the cell array
+     *
+     * @param c the column
+     * @param r the row
+     * @return the cell index
+     */
+    private int cellIndex(int c, int r) {
+        return r * cols + c;
+    }
+
+    /**
+     * Adds an object to the front of a cell's list
+     *
+     * @param id the object number
+     * @param cell the cell index
+     */
+    private void link(int id, int cell) {
+        int first = head[cell];
+        next[id] = first;
+        prev[id] = NONE;
+        if (first != NONE) {
+            prev[first] = id;
+        }
+        head[cell] = id;
+        cellOf[id] = cell;
+    }
+
+    /**
+     * Removes an object from its cell's list
+     *
+     * @param id the object number
+     */
+    private void unlink(int id) {
+        int cell = cellOf[id];
+        if (prev[id] != NONE) {
+            next[prev[id]] = next[id];
+        } else {
+            head[cell] = next[id];
+        }
+        if (next[id] != NONE) {
+            prev[next[id]] = prev[id];
+        }
+        cellOf[id] = NONE;
+    }
+
+}
@@ -0,0 +1,97 @@
+package classes;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Shape;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+
+/**
+ * SpriteCache.java - outlines that never change shape, drawn once by Java2D
+ * and kept as lists of the pixels they cover
+ *
+ * Drawing a sprite stamps its pixels straight into a pixel buffer, so the
+ * shape is not transformed or turned into pixels again every frame. Each
+ * sprite's pixels are measured from the point the shape was drawn around,
+ * so a sprite is stamped at the same point its shape would be drawn at.
+ *
+ * @author Darwin
+ */
+public class SpriteCache {
+
+    // columns and rows of each sprite's pixels
+    private final int[][] dx;
+    private final int[][] dy;
+    // the image the shapes are drawn into and the point they are drawn
+    // around (the middle of the image)
+    private final BufferedImage scratch;
+    private final int[] scratchPixels;
+    private final Graphics2D scratchGraphics;
+    private final int origin;
+
+    /**
+     * constructor for an empty cache
+     *
+     * @param count number of sprites
+     * @param reach furthest a shape reaches from the point it is drawn around
+     */
+    public SpriteCache(int count, int reach) {
+        dx = new int[count][0];
+        dy = new int[count][0];
+        origin = reach + 1;
+        scratch = new BufferedImage(origin * 2 + 1, origin * 2 + 1,
+                BufferedImage.TYPE_INT_RGB);
+        scratchPixels = ((DataBufferInt) scratch.getRaster().getDataBuffer()).getData();
+        scratchGraphics = scratch.createGraphics();
+    }
+
+    /**
+     * Draws the outline of a shape and keeps its pixels as a sprite
+     *
+     * @param sprite the sprite to replace
+     * @param shape the shape, around the point (0, 0)
+     * @param transform moves the shape before it is drawn (null for none)
+     */
+    public void put(int sprite, Shape shape, AffineTransform transform) {
+        Arrays.fill(scratchPixels, 0);
+        scratchGraphics.setTransform(AffineTransform.getTranslateInstance(origin, origin));
+        if (transform != null) {
+            scratchGraphics.transform(transform);
+        }
+        scratchGraphics.setColor(Color.WHITE);
+        scratchGraphics.draw(shape);
+        int n = 0;
+        for (int p : scratchPixels) {
+            if (p != 0) {
+                n++;
+            }
+        }
+        int width = scratch.getWidth();
+        dx[sprite] = new int[n];
+        dy[sprite] = new int[n];
+        n = 0;
+        for (int p = 0; p < scratchPixels.length; p++) {
+            if (scratchPixels[p] != 0) {
+                dx[sprite][n] = p % width - origin;
+                dy[sprite][n] = p / width - origin;
+                n++;
+            }
+        }
+    }
+
+    /**
+     * Stamps a sprite into a pixel buffer, clipping the parts outside it
+     *
+     * @param target the buffer to draw into
+     * @param sprite the sprite
+     * @param x column of the point the shape was drawn around
+     * @param y row of the point the shape was drawn around
+     * @param rgb the colour (0xRRGGBB)
+     */
+    public void stamp(PixelBuffer target, int sprite, int x, int y, int rgb) {
+        target.stamp(x, y, dx[sprite], dy[sprite], rgb);
+    }
+
+}
@@ -0,0 +1,61 @@
+package classes;
+
+/**
+ * StateBuffer.java - hands the last two completed ticks from the simulation
+ * thread to the renderer
+ *
+ * @author Darwin
+ */
+public class StateBuffer {
+
+    // the two most recent states
+    private WorldState previous = new WorldState();
+    private WorldState latest = new WorldState();
+    // time the latest state was published
+    private long publishNanos;
+    // true once at least one state has been published
+    private boolean ready = false;
+
+    /**
+     * Publishes the world's current state as the latest state
+     *
+     * @param world the world that just finished a tick
+     */
+    public synchronized void publish(World world) {
+        // the old latest state becomes the previous state
+        WorldState oldest = previous;
+        previous = latest;
+        latest = oldest;
+        latest.copyFrom(world);
+        // the first state has no previous state to interpolate from
+        if (!ready) {
+            previous.copyFrom(latest);
+            ready = true;
+        }
+        publishNanos = System.nanoTime();
+    }
+
+    /**
+     * Copies the two most recent states for rendering
+     *
+     * @param prev receives the previous state
+     * @param curr receives the latest state
+     * @return the time the latest state was published, or -1 if there is none
+     */
+    public synchronized long read(WorldState prev, WorldState curr) {
+        if (!ready) {
+            return -1;
+        }
+        prev.copyFrom(previous);
+        curr.copyFrom(latest);
+        return publishNanos;
+    }
+
+    /**
+     * Forgets all published states (used when a new game starts)
+     */
+    public synchronized void clear() {
+        ready = false;
+    }
+
+}
@@ -0,0 +1,215 @@
+package classes;
+
+import java.util.Arrays;
+
+/**
+ * TickScheduler.java - runs tasks a number of game ticks from now, using a
+ * hashed timing wheel
+ *
+ * Every timer lives in the bucket of the tick it is due on (its due tick
+ * modulo the wheel size), so scheduling and cancelling only link or unlink
+ * one entry, and each tick only looks at one bucket. Timers further away
+ * than one turn of the wheel wait in their bucket until their tick comes
+ * round. The timers are a fixed pool stored in primitive arrays, so
+ * scheduling never creates new objects, and time only moves when the
+ * simulation ticks, so timers play out the same headless, fast forwarded
+ * or replayed.
+ *
+ * @author Darwin
+ */
+public class TickScheduler {
+
+    // number of buckets (a power of two)
+    static final int WHEEL_SIZE = 256;
+    // default number of timers that can be waiting at once
+    static final int DEFAULT_CAPACITY = 64;
+    // marks an empty bucket, the end of a list or a failed schedule
+    static final int NONE = -1;
+
+    // bits of a handle that hold the timer's slot (the rest count how many
+    // times the slot has been used, so old handles cannot cancel new timers)
+    private static final int SLOT_BITS = 16;
+    private static final int SLOT_MASK = (1 << SLOT_BITS) - 1;
+    // (kept to 15 bits so a handle is never negative)
+    private static final int USE_MASK = (1 << 31 - SLOT_BITS) - 1;
+
+    // first and last timer in each bucket
+    private final int[] head = new int[WHEEL_SIZE];
+    private final int[] tail = new int[WHEEL_SIZE];
+    // doubly linked lists of the timers in each bucket (next is also the
+    // list of free slots)
+    private final int[] next;
+    private final int[] prev;
+    // tick each timer is due on
+    private final long[] due;
+    // the task each timer runs
+    private final Runnable[] task;
+    // times each slot has been used
+    private final int[] uses;
+    // first free slot
+    private int free;
+    // number of timers waiting
+    private int count = 0;
+    // the current tick
+    private long now = 0;
+
+    /**
+     * Default Constructor
+     */
+    public TickScheduler() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * constructor for a scheduler of a given size
+     *
+     * @param capacity largest number of timers waiting at once (at most
+     * 65536)
+     */
+    public TickScheduler(int capacity) {
+        if (capacity < 1 || capacity > SLOT_MASK + 1) {
+            throw new IllegalArgumentException("capacity must be 1 to "
+                    + (SLOT_MASK + 1) + ": " + capacity);
+        }
+        next = new int[capacity];
+        prev = new int[capacity];
+        due = new long[capacity];
+        task = new Runnable[capacity];
+        uses = new int[capacity];
+        clear(0);
+    }
+
+    /**
+     * Forgets every timer and sets the clock
+     *
+     * @param tick the current tick
+     */
+    public final void clear(long tick) {
+        Arrays.fill(head, NONE);
+        Arrays.fill(tail, NONE);
+        Arrays.fill(task, null);
+        // every slot is free
+        for (int s = 0; s < next.length; s++) {
+            next[s] = s + 1 < next.length ? s + 1 : NONE;
+        }
+        free = 0;
+        count = 0;
+        now = tick;
+    }
+
+    /**
+     * retrieve the current tick
+     *
+     * @return the tick
+     */
+    public long getTick() {
+        return now;
+    }
+
+    /**
+     * retrieve the number of timers waiting
+     *
+     * @return the number of timers
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Runs a task on a later tick (tasks due on the same tick run in the
+     * order they were scheduled)
+     *
+     * @param delay number of ticks from now (at least 1)
+     * @param action the task
+     * @return a handle for cancel, or NONE if every timer is in use
+     */
+    public int schedule(int delay, Runnable action) {
+        if (delay < 1) {
+            throw new IllegalArgumentException("delay must be at least 1: " + delay);
+        }
+        if (free == NONE) {
+            return NONE;
+        }
+        int s = free;
+        free = next[s];
+        due[s] = now + delay;
+        task[s] = action;
+        uses[s] = (uses[s] + 1) & USE_MASK;
+        // added to the end of the bucket's list
+        int bucket = (int) (due[s] & (WHEEL_SIZE - 1));
+        next[s] = NONE;
+        prev[s] = tail[bucket];
+        if (tail[bucket] != NONE) {
+            next[tail[bucket]] = s;
+        } else {
+            head[bucket] = s;
+        }
+        tail[bucket] = s;
+        count++;
+        return uses[s] << SLOT_BITS | s;
+    }
+
+    /**
+     * Stops a timer that has not run yet
+     *
+     * @param handle the handle schedule returned
+     * @return false if the timer already ran or was cancelled
+     */
+    public boolean cancel(int handle) {
+        if (handle == NONE) {
+            return false;
+        }
+        int s = handle & SLOT_MASK;
+        if (s >= task.length || task[s] == null || uses[s] != handle >>> SLOT_BITS) {
+            return false;
+        }
+        release(s);
+        return true;
+    }
+
+    /**
+     * Moves the clock on by one tick and runs the tasks due on it
+     */
+    public void advance() {
+        now++;
+        int bucket = (int) (now & (WHEEL_SIZE - 1));
+        int s = head[bucket];
+        while (s != NONE) {
+            if (due[s] == now) {
+                Runnable action = task[s];
+                release(s);
+                action.run();
+                // the task may have cancelled or added timers, so the bucket
+                // is searched again (timers that ran are gone and new ones
+                // are due later)
+                s = head[bucket];
+            } else {
+                s = next[s];
+            }
+        }
+    }
+
+    /**
+     * Unlinks a timer from its bucket and frees its slot
+     *
+     * @param s the timer's slot
+     */
+    private void release(int s) {
+        int bucket = (int) (due[s] & (WHEEL_SIZE - 1));
+        if (prev[s] != NONE) {
+            next[prev[s]] = next[s];
+        } else {
+            head[bucket] = next[s];
+        }
+        if (next[s] != NONE) {
+            prev[next[s]] = prev[s];
+        } else {
+            tail[bucket] = prev[s];
+        }
+        task[s] = null;
+        next[s] = free;
+        free = s;
+        count--;
+    }
+
+}
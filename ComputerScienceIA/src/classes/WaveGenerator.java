@@ -0,0 +1,85 @@
+package classes;
+
+/**
+ * WaveGenerator.java - describes the enemies of each wave and spawns them a
+ * batch at a time
+ *
+ * A wave is spawned over as many ticks as it needs, so a very large wave
+ * does not stall a single tick. Waves no larger than one batch spawn all at
+ * once, exactly as before.
+ *
+ * @author Darwin
+ */
+public class WaveGenerator {
+
+    // most enemies spawned in one tick
+    static final int SPAWNS_PER_TICK = 2048;
+    // enemy speed grows by up to this factor for every wave
+    static final double SPEED_GROWTH = 1.7;
+    // smallest and largest enemy sizes
+    static final int MIN_SIZE = 40;
+    static final int MAX_SIZE = 80;
+
+    // number of enemies in each wave
+    private final int enemyAmount;
+    // the wave being spawned
+    private int waveNumber;
+    // enemies of the wave that have not spawned yet
+    private int remaining = 0;
+
+    /**
+     * constructor for a generator
+     *
+     * @param enemyAmount number of enemies in each wave
+     */
+    public WaveGenerator(int enemyAmount) {
+        this.enemyAmount = enemyAmount;
+    }
+
+    /**
+     * Starts spawning a wave (any enemies not yet spawned from the previous
+     * wave are forgotten)
+     *
+     * @param waveNumber the wave's number (later waves are faster)
+     */
+    public void start(int waveNumber) {
+        this.waveNumber = waveNumber;
+        remaining = enemyAmount;
+    }
+
+    /**
+     * check if enemies of the wave are still to be spawned
+     *
+     * @return true if the wave is not fully spawned
+     */
+    public boolean pending() {
+        return remaining > 0;
+    }
+
+    /**
+     * Spawns the next batch of the wave at the top of the map
+     *
+     * @param enemies the enemy pool
+     * @param grid the enemies' grid
+     * @param random the game's random number generator
+     * @param zoneSize width and height of the playing zone
+     * @return the number of enemies spawned
+     */
+    public int spawn(Enemies enemies, SpatialGrid grid, GameRandom random,
+            int zoneSize) {
+        int batch = Math.min(remaining, SPAWNS_PER_TICK);
+        for (int n = 0; n < batch; n++) {
+            // the enemies' velocities are dependent on the wave number
+            double speed = Math.pow(SPEED_GROWTH, random.nextDouble() * waveNumber);
+            int size = (int) (MIN_SIZE + random.nextDouble() * (MAX_SIZE - MIN_SIZE));
+            // place the enemies in random locations at the top of the map
+            double x = random.nextDouble() * (zoneSize - size);
+            double y = -zoneSize * 0.8 + random.nextDouble() * -zoneSize * 0.2;
+            int k = enemies.spawn(x, y, speed, size);
+            grid.insert(k, x, y);
+        }
+        remaining -= batch;
+        return batch;
+    }
+
+}
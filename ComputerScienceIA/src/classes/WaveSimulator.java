@@ -0,0 +1,190 @@
+package classes;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * WaveSimulator.java - plays thousands of games with the scripted player on
+ * every core and reports how far they get
+ *
+ * Every game has its own world and its own random numbers, picked from the
+ * run's seed by the game's number, so a run gives the same results however
+ * many threads it uses.
+ *
+ * @author Darwin
+ */
+public class WaveSimulator {
+
+    // games a task plays itself instead of splitting them further
+    private static final int GAMES_PER_TASK = 4;
+    // percentiles reported for the wave and score
+    private static final double[] FRACTIONS = {0.1, 0.5, 0.9, 0.99};
+
+    // the games to play
+    private final int games;
+    private final int enemyAmount;
+    private final long seed;
+    // games still going after this many ticks are stopped
+    private final long maxTicks;
+    // the results of each game
+    private final int[] wave;
+    private final int[] score;
+    private final long[] ticks;
+    private final boolean[] finished;
+
+    /**
+     * constructor for a batch of games
+     *
+     * @param games number of games to play
+     * @param enemyAmount number of enemies in each wave
+     * @param seed picks the seed of every game
+     * @param maxTicks longest a game may run
+     */
+    public WaveSimulator(int games, int enemyAmount, long seed, long maxTicks) {
+        this.games = games;
+        this.enemyAmount = enemyAmount;
+        this.seed = seed;
+        this.maxTicks = maxTicks;
+        wave = new int[games];
+        score = new int[games];
+        ticks = new long[games];
+        finished = new boolean[games];
+    }
+
+    /**
+     * Plays every game and prints the results
+     *
+     * @param threads number of threads to play on
+     */
+    public void run(int threads) {
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        long start = System.nanoTime();
+        try {
+            pool.invoke(new Games(0, games));
+        } finally {
+            pool.shutdown();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        report(threads, seconds);
+    }
+
+    /**
+     * Plays one game to the end (or the tick limit) and keeps its results
+     *
+     * @param world the world to play in
+     * @param player the player
+     * @param game the game's number
+     */
+    private void play(World world, ScriptedPlayer player, int game) {
+        world.load(GameRandom.nthLong(seed, game));
+        player.reset();
+        while (!world.lost && world.tick < maxTicks) {
+            player.play(world);
+            world.tick();
+        }
+        wave[game] = world.waveNumber;
+        score[game] = world.score;
+        ticks[game] = world.tick;
+        finished[game] = world.lost;
+    }
+
+    /**
+     * Prints the survival curve, the wave and score distributions and the
+     * tick rate
+     *
+     * @param threads number of threads used
+     * @param seconds time taken
+     */
+    private void report(int threads, double seconds) {
+        long totalTicks = 0;
+        int unfinished = 0;
+        for (int g = 0; g < games; g++) {
+            totalTicks += ticks[g];
+            if (!finished[g]) {
+                unfinished++;
+            }
+        }
+        System.out.println("games: " + games + " on " + threads + " threads");
+        System.out.println("enemies per wave: " + enemyAmount);
+        System.out.println("seed: " + seed);
+        System.out.println("games still going after " + maxTicks + " ticks: "
+                + unfinished);
+        printDistribution("wave reached", wave);
+        printDistribution("score", score);
+        // share of games that reached each wave
+        int[] sorted = wave.clone();
+        Arrays.sort(sorted);
+        System.out.println("survival:");
+        int index = 0;
+        for (int w = 1; w <= sorted[games - 1]; w++) {
+            while (index < games && sorted[index] < w) {
+                index++;
+            }
+            System.out.printf("  wave %d: %.1f%%%n", w, 100.0 * (games - index) / games);
+        }
+        System.out.println("ticks: " + totalTicks);
+        System.out.printf("elapsed: %.3f s%n", seconds);
+        System.out.printf("ticks/second: %.0f%n", totalTicks / seconds);
+    }
+
+    /**
+     * Prints the mean and percentiles of one result
+     *
+     * @param name the result's name
+     * @param values the result of each game
+     */
+    private void printDistribution(String name, int[] values) {
+        int[] sorted = values.clone();
+        Arrays.sort(sorted);
+        long sum = 0;
+        for (int v : sorted) {
+            sum += v;
+        }
+        StringBuilder sb = new StringBuilder(name).append(": mean ")
+                .append(String.format("%.2f", (double) sum / games));
+        for (double f : FRACTIONS) {
+            sb.append(", p").append(Math.round(f * 100)).append(' ')
+                    .append(sorted[Math.min(games - 1, (int) (f * games))]);
+        }
+        sb.append(", max ").append(sorted[games - 1]);
+        System.out.println(sb);
+    }
+
+    /**
+     * A range of games, split in half until it is small enough to play
+     */
+    @SuppressWarnings("serial")
+    private final class Games extends RecursiveAction {
+
+        private final int from;
+        private final int to;
+
+        /**
+         * constructor for a range of games
+         *
+         * @param from the first game
+         * @param to one past the last game
+         */
+        Games(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= GAMES_PER_TASK) {
+                // one world and player are reused for the games of a task
+                World world = new World(enemyAmount);
+                ScriptedPlayer player = new ScriptedPlayer();
+                for (int g = from; g < to; g++) {
+                    play(world, player, g);
+                }
+            } else {
+                int middle = (from + to) >>> 1;
+                invokeAll(new Games(from, middle), new Games(middle, to));
+            }
+        }
+    }
+
+}
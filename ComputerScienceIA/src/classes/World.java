@@ -0,0 +1,811 @@
+package classes;
+
+import java.awt.event.KeyEvent;
+import java.awt.geom.Ellipse2D;
+import java.awt.geom.Line2D;
+import java.awt.geom.Rectangle2D;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * World.java - the game rules and state, independent of any Swing component
+ *
+ * @author Darwin
+ */
+public class World {
+
+    // object instances
+    Drone drone;
+    Projectiles lasers;
+    // sparks and exhaust (null unless the world is drawn, see setParticles)
+    Particles particles;
+    Rectangle2D.Double zone;
+    Rectangle2D.Double miniMap;
+    Line2D.Double deltaInd;
+    Enemies enemies;
+    Ellipse2D.Double[] enemyBlip;
+    Rectangle2D.Double view;
+    // spatial index for the enemies
+    SpatialGrid enemyGrid;
+    // seed the stars and buildings are made from (see Scenery)
+    long scenerySeed;
+    // receives the results of enemy grid queries
+    private int[] found;
+    // reused for the laser intersection test
+    private final Rectangle2D.Double hitBox = new Rectangle2D.Double();
+    // splits the enemy work of large waves across cores (null for small ones)
+    private ParallelTick parallel;
+    // spawns the enemies of each wave
+    private final WaveGenerator waves;
+    // enemies destroyed this tick that are still to be removed from the pool
+    private int removals = 0;
+    // number of radar blips placed on the last tick
+    private int blipsShown = 0;
+    private WorldListener listener;
+    // times each phase of a tick (null when the phases are not timed)
+    private FrameProfiler profiler;
+    // live counters for the metrics server (null when they are not served)
+    private GameMetrics metrics;
+    // time taken by each phase of the last timed tick
+    private final long[] phaseNanos = new long[FrameProfiler.TICK];
+    // true while a tick is being timed
+    private boolean timed = false;
+    // the flight recorder event of the tick being run (kept between ticks
+    // so it is reused)
+    private Object tickEvent;
+    // constants
+    static final int DRONE_SIZE = 20;
+    static final int X_CENTER = 900;
+    static final int Y_CENTER = 500;
+    // width and height of the playing zone (-Dgame.zone=N for larger
+    // worlds; the scenery is made in chunks, so size costs nothing up front)
+    static final int ZONE_SIZE = Integer.getInteger("game.zone", 5000);
+    // size of the minimap in pixels and the world units in each pixel
+    static final int MAP_SIZE = 500;
+    static final double MAP_SCALE = (double) ZONE_SIZE / MAP_SIZE;
+    static final int MAX_ENEMY_AMOUNT = 20;
+    static final double GRAVITY = 0.2;
+    // number of ticks between clearing a wave and spawning the next one
+    // (one second at the 20 millisecond tick rate)
+    static final int WAVE_DELAY_TICKS = 50;
+    // largest enemy size and building height
+    static final int MAX_ENEMY_SIZE = 80;
+    // sparks thrown out by a destroyed enemy, their speed and lifetime
+    static final int EXPLOSION_PARTICLES = 24;
+    static final double EXPLOSION_SPEED = 6;
+    static final int EXPLOSION_TICKS = 40;
+    // exhaust particles blown out each tick at full thrust, their speed and
+    // lifetime
+    static final int EXHAUST_PARTICLES = 4;
+    static final double EXHAUST_SPEED = 8;
+    static final int EXHAUST_TICKS = 12;
+    // spark colours (yellow, orange and red) and the exhaust colour (orange)
+    static final int[] EXPLOSION_RGB = {0xFFFF00, 0xFFC800, 0xFF0000};
+    static final int EXHAUST_RGB = 0xFFC800;
+    static final int MAX_BUILDING_HEIGHT = 600;
+    // grid cell size for enemies (larger in very large zones, so the grid
+    // is at most 1000 cells across)
+    static final int ENEMY_CELL_SIZE = Math.max(100, ZONE_SIZE / 1000);
+    // variables
+    private final int enemyAmount;
+    double rotationDelta = 0;
+    double xDelta = 0;
+    double yDelta = 0;
+    double thrust = 0;
+    double recoil = 0;
+    int ammo = 50;
+    double xCam = 0;
+    double yCam = 0;
+    int enemiesDead = 0;
+    int waveNumber = 1;
+    int score = 0;
+    long tick = 0;
+    boolean lost = false;
+    // runs the wave delays and other timed events on the game clock
+    private final TickScheduler timers = new TickScheduler();
+    // the timed events (made once so scheduling them creates no objects)
+    private final Runnable nextWave = this::nextWave;
+    private final Runnable spawnBatch = this::spawnBatch;
+    // every random number in a game comes from its seed
+    private final GameRandom random = new GameRandom(0);
+    // scatters the particles (a stream of its own, so the effects never
+    // change how a game plays out)
+    private final GameRandom effects = new GameRandom(0);
+    private long seed = 0;
+    // picks the seed of each new game
+    private final GameRandom seeds;
+
+    /**
+     * Default Constructor, uses the standard number of enemies per wave
+     */
+    public World() {
+        this(MAX_ENEMY_AMOUNT);
+    }
+
+    /**
+     * Constructor for a world with a custom wave size
+     *
+     * @param enemyAmount number of enemies in each wave
+     */
+    public World(int enemyAmount) {
+        this(enemyAmount, System.nanoTime());
+    }
+
+    /**
+     * Constructor for a world whose games are all picked from one seed
+     *
+     * @param enemyAmount number of enemies in each wave
+     * @param seed picks the seed of every game loaded with load()
+     */
+    public World(int enemyAmount, long seed) {
+        this.enemyAmount = enemyAmount;
+        listener = WorldListener.NONE;
+        seeds = new GameRandom(seed);
+        waves = new WaveGenerator(enemyAmount);
+    }
+
+    /**
+     * Sets the listener that is told about sounds and game over
+     *
+     * @param listener the listener (null for none)
+     */
+    public void setListener(WorldListener listener) {
+        this.listener = listener == null ? WorldListener.NONE : listener;
+    }
+
+    /**
+     * Sets the profiler that times each phase of a tick
+     *
+     * @param profiler the profiler (null to stop timing)
+     */
+    public void setProfiler(FrameProfiler profiler) {
+        this.profiler = profiler;
+    }
+
+    /**
+     * Sets the pool the sparks and exhaust are emitted into (only worlds that
+     * are drawn need one, so headless and simulated games skip the effects)
+     *
+     * @param particles the pool (null for no effects)
+     */
+    public void setParticles(Particles particles) {
+        this.particles = particles;
+        if (particles != null) {
+            particles.clear();
+        }
+    }
+
+    /**
+     * Sets the counters that are updated after every tick
+     *
+     * @param metrics the counters (null for none)
+     */
+    public void setMetrics(GameMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * retrieve the seed of the current game
+     *
+     * @return the seed
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Sums up the state of the game into one number, so two runs of the same
+     * game can be compared
+     *
+     * @return the checksum
+     */
+    public long checksum() {
+        long h = GameRandom.mix(tick);
+        h = GameRandom.mix(h ^ Double.doubleToLongBits(drone.getX()));
+        h = GameRandom.mix(h ^ Double.doubleToLongBits(drone.getY()));
+        h = GameRandom.mix(h ^ Double.doubleToLongBits(drone.getAngle()));
+        h = GameRandom.mix(h ^ ((long) score << 32 | waveNumber));
+        h = GameRandom.mix(h ^ ((long) ammo << 32 | lasers.count));
+        h = GameRandom.mix(h ^ enemies.count);
+        for (int k = 0; k < enemies.count; k++) {
+            h = GameRandom.mix(h ^ Double.doubleToLongBits(enemies.y[k]));
+        }
+        return h;
+    }
+
+    /**
+     * retrieve the number of enemies in each wave
+     *
+     * @return the wave size
+     */
+    public int getEnemyAmount() {
+        return enemyAmount;
+    }
+
+    /**
+     * Restarts the world to a "fresh" state
+     */
+    public void load() {
+        load(seeds.nextLong());
+    }
+
+    /**
+     * Restarts the world as the game with the given seed
+     *
+     * @param seed the game's seed (the same seed and key presses always play
+     * out the same way)
+     */
+    public void load(long seed) {
+        this.seed = seed;
+        random.setSeed(seed);
+        effects.setSeed(GameRandom.mix(~seed));
+        // sets all variables to their default values
+        rotationDelta = 0;
+        xDelta = 0;
+        yDelta = 0;
+        thrust = 0;
+        recoil = 0;
+        ammo = 50;
+        xCam = 0;
+        yCam = 0;
+        enemiesDead = 0;
+        waveNumber = 1;
+        score = 0;
+        tick = 0;
+        lost = false;
+        timers.clear(tick);
+
+        // initialize all classes
+        initClasses();
+    }
+
+    /**
+     * Initialize class instances (the drone, lasers, enemies and HUD are
+     * created by the first game and reused by the games after it)
+     */
+    private void initClasses() {
+        if (drone == null) {
+            createClasses();
+        }
+        // set the drone upright at the bottom of the map
+        drone.rotateByDegrees(-drone.getAngle());
+        drone.setLocation(ZONE_SIZE / 2, -DRONE_SIZE);
+        // the previous game's lasers, enemies and blips are forgotten
+        lasers.clear();
+        if (particles != null) {
+            particles.clear();
+        }
+        enemies.clear();
+        enemyGrid.clear();
+        removals = 0;
+        for (int i = 0; i < blipsShown; i++) {
+            enemyBlip[i].setFrame(0, 0, 0, 0);
+        }
+        blipsShown = 0;
+        spawnWave();
+        // the stars and buildings are only made when they come into view,
+        // from a seed of their own
+        scenerySeed = random.nextLong();
+    }
+
+    /**
+     * Creates the objects that every game reuses
+     */
+    private void createClasses() {
+        // create drone instance
+        drone = new Drone(DRONE_SIZE);
+        // create the pool of lasers
+        lasers = new Projectiles();
+        // create the playing zone
+        zone = new Rectangle2D.Double(0, -ZONE_SIZE, ZONE_SIZE, ZONE_SIZE);
+        // create minimap rectangle instance
+        miniMap = new Rectangle2D.Double();
+        // create instance of velocity indicator
+        deltaInd = new Line2D.Double();
+        // create instance of view rectangle (what the player sees onscreen)
+        view = new Rectangle2D.Double(0, 0, X_CENTER * 2, Y_CENTER * 2);
+        // the pool of enemies and its grid
+        enemies = new Enemies(enemyAmount);
+        enemyGrid = new SpatialGrid(zone, ENEMY_CELL_SIZE, enemyAmount,
+                MAX_ENEMY_SIZE);
+        found = new int[enemyAmount];
+        parallel = ParallelTick.worthwhile(enemyAmount)
+                ? new ParallelTick(ForkJoinPool.commonPool(), enemies, enemyGrid, lasers)
+                : null;
+        // array of enemies radar blips is initialized
+        enemyBlip = new Ellipse2D.Double[enemyAmount];
+        for (int i = 0; i < enemyBlip.length; i++) {
+            // create a new ellipse for each index
+            enemyBlip[i] = new Ellipse2D.Double();
+        }
+    }
+
+    /**
+     * Starts a new wave and spawns its first batch of enemies at the top of
+     * the map (the rest spawn over the next ticks)
+     */
+    private void spawnWave() {
+        Object event = GameEvents.waveStarting();
+        long start = System.nanoTime();
+        waves.start(waveNumber);
+        spawnBatch();
+        GameEvents.waveStarted(event, waveNumber, enemyAmount, System.nanoTime() - start);
+    }
+
+    /**
+     * Spawns the next batch of the wave, and the one after it on the next
+     * tick if the wave is large
+     */
+    private void spawnBatch() {
+        waves.spawn(enemies, enemyGrid, random, ZONE_SIZE);
+        if (waves.pending()) {
+            timers.schedule(1, spawnBatch);
+        }
+    }
+
+    /**
+     * Spawns the rest of the current wave at once instead of a batch every
+     * tick (so benchmarks can start with the whole wave alive)
+     */
+    void spawnRestOfWave() {
+        while (waves.pending()) {
+            waves.spawn(enemies, enemyGrid, random, ZONE_SIZE);
+        }
+    }
+
+    /**
+     * Spawns the next wave once the wave delay has passed
+     */
+    private void nextWave() {
+        // wave number increases
+        waveNumber++;
+        // number of dead enemies is reset to zero
+        enemiesDead = 0;
+        // spawn a new wave of enemies
+        spawnWave();
+    }
+
+    /**
+     * Advances the world by one game tick
+     */
+    public void tick() {
+        // the phases are only timed when someone is looking
+        Object event = GameEvents.tickStarted(tickEvent);
+        if (event != null) {
+            tickEvent = event;
+        }
+        timed = profiler != null || event != null;
+        long start = timed ? System.nanoTime() : 0;
+        long time = start;
+        // move the drone
+        moveDrone();
+        time = lap(FrameProfiler.MOVE_DRONE, time);
+        // move the laser
+        moveLaser();
+        time = lap(FrameProfiler.MOVE_LASER, time);
+        // check for collisions between the drone and a wall
+        checkWallCollisions();
+        time = lap(FrameProfiler.WALL_COLLISIONS, time);
+        // calculate enemy collisions with lasers
+        checkForEnemyDeaths();
+        time = lap(FrameProfiler.ENEMY_DEATHS, time);
+        // calculate the enemies' movement
+        moveEnemy();
+        time = lap(FrameProfiler.MOVE_ENEMY, time);
+        // update the heads up display
+        updateHUD();
+        time = lap(FrameProfiler.UPDATE_HUD, time);
+        // update the camera position
+        updateCamera();
+        time = lap(FrameProfiler.UPDATE_CAMERA, time);
+        // run the timed events due before the next tick
+        timers.advance();
+        time = lap(FrameProfiler.TIMERS, time);
+        // move the sparks and exhaust
+        if (particles != null) {
+            particles.update();
+        }
+        time = lap(FrameProfiler.PARTICLES, time);
+        tick++;
+        if (timed) {
+            if (profiler != null) {
+                profiler.record(FrameProfiler.TICK, time - start);
+            }
+            GameEvents.tick(event, this, phaseNanos, time - start);
+        }
+        if (metrics != null) {
+            metrics.update(this);
+        }
+    }
+
+    /**
+     * Records the time taken by a phase of the tick
+     *
+     * @param phase the phase that just finished
+     * @param start the time the phase started
+     * @return the time the phase finished (when the next phase starts)
+     */
+    private long lap(int phase, long start) {
+        if (!timed) {
+            return 0;
+        }
+        long now = System.nanoTime();
+        phaseNanos[phase] = now - start;
+        if (profiler != null) {
+            profiler.record(phase, now - start);
+        }
+        return now;
+    }
+
+    /**
+     * Applies a key press to the drone controls
+     *
+     * @param keyCode the key code from KeyEvent
+     */
+    public void keyPressed(int keyCode) {
+        // A pressed
+        if (keyCode == KeyEvent.VK_A) {
+            // drone rotates left
+            rotationDelta = -3;
+        }
+        // D pressed
+        if (keyCode == KeyEvent.VK_D) {
+            // drone rotates right
+            rotationDelta = 3;
+        }
+        // W pressed
+        if (keyCode == KeyEvent.VK_W) {
+            // drone increases thrust to full
+            thrust = GRAVITY * 2;
+        }
+        // S pressed
+        if (keyCode == KeyEvent.VK_S) {
+            // drone decreases thrust to zero
+            thrust = 0;
+
+        }
+    }
+
+    /**
+     * Applies a key release to the drone controls
+     *
+     * @param keyCode the key code from KeyEvent
+     */
+    public void keyReleased(int keyCode) {
+        // A released
+        if (keyCode == KeyEvent.VK_A) {
+            // drone stops rotating
+            rotationDelta = 0;
+        }
+        // D released
+        if (keyCode == KeyEvent.VK_D) {
+            // drone stops rotating
+            rotationDelta = 0;
+        }
+        // W released
+        if (keyCode == KeyEvent.VK_W) {
+            // drone sets thrust to half (hovering)
+            thrust = GRAVITY;
+        }
+        // S released
+        if (keyCode == KeyEvent.VK_S) {
+            if (drone.getY() + DRONE_SIZE < zone.getMaxY()) {
+                // drone sets thrust to half (hovering)
+                thrust = GRAVITY;
+            }
+
+        }
+        // left arrow released
+        if (keyCode == KeyEvent.VK_LEFT) {
+            fireLaser(-1);
+        }
+        // right arrow released
+        if (keyCode == KeyEvent.VK_RIGHT) {
+            fireLaser(1);
+        }
+    }
+
+    /**
+     * Shoots a laser from the drone's center if there is ammo left
+     *
+     * @param direction -1 to shoot left, 1 to shoot right
+     */
+    private void fireLaser(int direction) {
+        // check if ammo is greater than zero
+        if (ammo > 0) {
+            // creates a laser starting from the drone's center
+            // (nothing is shot if the pool of lasers is full)
+            if (!lasers.fire(drone.getX() + (DRONE_SIZE / 2),
+                    drone.getY() + (DRONE_SIZE / 2),
+                    100 * direction * Math.cos(Math.toRadians(drone.getAngle())),
+                    100 * direction * Math.sin(Math.toRadians(drone.getAngle())))) {
+                return;
+            }
+
+            // gun recoil
+            recoil = direction;
+            // ammo diminishes
+            ammo--;
+            // play laser sound effect
+            listener.laserFired();
+        }
+    }
+
+    /**
+     * Check for collisions between the drone and a wall
+     */
+    void checkWallCollisions() {
+        // west wall collision
+        if (drone.getX() <= zone.getMinX()) {
+            // horizontal velocity set to zero
+            xDelta = 0;
+            // the drone is moved to the edge of the wall (in case it is stuck)
+            drone.setLocation(zone.getMinX(), drone.getY());
+        }
+        // east wall collision
+        if (drone.getX() + DRONE_SIZE >= zone.getMaxX()) {
+            // horizontal velocity set to zero
+            xDelta = 0;
+            // the drone is moved to the edge of the wall
+            drone.setLocation(zone.getMaxX() - DRONE_SIZE, drone.getY());
+        }
+        // top wall collision
+        if (drone.getY() <= zone.getMinY()) {
+            // vertica velocity is set to zero
+            yDelta = 0;
+            // drone is moved to wall edge
+            drone.setLocation(drone.getX(), zone.getMinY());
+        }
+        // ground collision
+        if (drone.getY() + DRONE_SIZE >= zone.getMaxY()) {
+            // thrust is set to zero
+            thrust = 0;
+            // vertical velocity set to zero
+            yDelta = 0;
+            // horizontal velocity decays
+            xDelta *= 0.9;
+            // drone is set at an upright angle
+            drone.rotateByDegrees(-drone.getAngle());
+            // drone is moved to ground level (in case it was stuck in the ground)
+            drone.setLocation(drone.getX(), zone.getMaxY() - DRONE_SIZE);
+            // replenish ammo if it is lower than maximum
+            if (ammo < 50) {
+                // ammo increases by one
+                ammo++;
+            }
+        }
+    }
+
+    /**
+     * Calculate drone thrust and movement
+     */
+    void moveDrone() {
+        // calculate horizontal movement using thrust and recoil
+        xDelta += thrust * Math.sin(Math.toRadians(drone.getAngle()))
+                - recoil * Math.cos(Math.toRadians(drone.getAngle()));
+        // calculate vertical movement using thrust, recoil and gravity
+        yDelta += thrust * -Math.cos(Math.toRadians(drone.getAngle())) + GRAVITY
+                - recoil * Math.sin(Math.toRadians(drone.getAngle()));
+        // rotate the drone according to rotation delta
+        drone.rotateByDegrees(rotationDelta);
+        // drone moves according to calculated deltas
+        drone.moveLocatioBy(xDelta, yDelta);
+        // the engine blows exhaust out of the bottom of the drone
+        emitExhaust();
+
+    }
+
+    /**
+     * Blows exhaust particles out of the engine, more at higher thrust
+     */
+    private void emitExhaust() {
+        int n = (int) Math.round(EXHAUST_PARTICLES * thrust / (GRAVITY * 2));
+        if (n == 0 || particles == null) {
+            return;
+        }
+        double sin = Math.sin(Math.toRadians(drone.getAngle()));
+        double cos = Math.cos(Math.toRadians(drone.getAngle()));
+        double x = drone.getX() + DRONE_SIZE / 2;
+        double y = drone.getY() + DRONE_SIZE / 2;
+        for (int k = 0; k < n; k++) {
+            // the exhaust leaves opposite the thrust, fanned out a little
+            double speed = EXHAUST_SPEED * (0.5 + effects.nextDouble());
+            double spread = (effects.nextDouble() - 0.5) * 2;
+            particles.emit(x, y, xDelta - sin * speed + cos * spread,
+                    yDelta + cos * speed + sin * spread,
+                    EXHAUST_TICKS / 2 + (int) (effects.nextDouble() * EXHAUST_TICKS),
+                    EXHAUST_RGB);
+        }
+    }
+
+    /**
+     * Throws sparks out in every direction from a point
+     *
+     * @param x x coordinate of the explosion
+     * @param y y coordinate of the explosion
+     */
+    private void explode(double x, double y) {
+        if (particles == null) {
+            return;
+        }
+        for (int k = 0; k < EXPLOSION_PARTICLES; k++) {
+            double angle = effects.nextDouble() * 2 * Math.PI;
+            double speed = EXPLOSION_SPEED * effects.nextDouble();
+            particles.emit(x, y, Math.cos(angle) * speed, Math.sin(angle) * speed,
+                    EXPLOSION_TICKS / 2 + (int) (effects.nextDouble() * EXPLOSION_TICKS),
+                    EXPLOSION_RGB[k % EXPLOSION_RGB.length]);
+        }
+    }
+
+    /**
+     * Calculate movement of all lasers
+     */
+    void moveLaser() {
+        // check if drone has shot a laser
+        if (recoil > 0 || recoil < 0) {
+            // gun recoil set to zero
+            recoil = 0;
+        }   // lasers inside the playing zone move, the others are removed
+        lasers.move(zone);
+    }
+
+    /**
+     * Calculate movement of HUD elements
+     */
+    void updateHUD() {
+        // set the minimap HUD
+        miniMap.setFrame(X_CENTER - drone.getX() / MAP_SCALE,
+                Y_CENTER - drone.getY() / MAP_SCALE - MAP_SIZE, MAP_SIZE, MAP_SIZE);
+        // set the velocity vector indicator
+        deltaInd.setLine(X_CENTER, Y_CENTER, X_CENTER + xDelta * 10,
+                Y_CENTER + yDelta * 10);
+        // place a blip on the minimap for every live enemy
+        for (int i = 0; i < enemies.count; i++) {
+            enemyBlip[i].setFrame(X_CENTER - drone.getX() / MAP_SCALE
+                    + (enemies.x[i] - enemies.size[i] / 5) / MAP_SCALE,
+                    Y_CENTER - drone.getY() / MAP_SCALE
+                    + (enemies.y[i] - enemies.size[i] / 5) / MAP_SCALE, 5, 5);
+        }
+        // the blips of enemies destroyed since the last tick are removed
+        for (int i = enemies.count; i < blipsShown; i++) {
+            enemyBlip[i].setFrame(0, 0, 0, 0);
+        }
+        blipsShown = enemies.count;
+    }
+
+    /**
+     * Calculate enemy movement
+     */
+    void moveEnemy() {
+        // every enemy moves at once (straight through the component arrays)
+        Enemies e = enemies;
+        double bottom;
+        if (parallel != null) {
+            // large waves are moved in chunks on every core
+            bottom = parallel.move();
+        } else {
+            bottom = e.move();
+            // keep the enemies' grid cells up to date
+            for (int k = 0; k < e.count; k++) {
+                enemyGrid.move(k, e.x[k], e.y[k]);
+            }
+        }
+        // if an enemy is touching the ground...
+        if (bottom > zone.getMaxY() && !lost) {
+            // the game is lost
+            lost = true;
+            listener.gameLost(score);
+        }
+    }
+
+    /**
+     * Calculate enemy collisions with lasers, controls enemy wave spawning
+     */
+    void checkForEnemyDeaths() {
+        // large waves find the hits of many lasers on every core, then
+        // destroy the enemies here in laser order
+        if (parallel != null && parallel.findHits()) {
+            for (int h = 0; h < parallel.hitCount; h++) {
+                int i = parallel.hitEnemy[h];
+                // an enemy touched by several lasers is only destroyed once
+                if (enemies.alive[i]) {
+                    destroyEnemy(i, parallel.hitCandidates[h]);
+                }
+            }
+        } else {
+            // each laser is checked in turn
+            for (int l = 0; l < lasers.count; l++) {
+                checkLaserHits(lasers.x[l], lasers.y[l],
+                        lasers.x[l] + lasers.dx[l], lasers.y[l] + lasers.dy[l]);
+            }
+        }
+        if (removals > 0) {
+            removeDeadEnemies();
+        }
+    }
+
+    /**
+     * Removes the enemies destroyed this tick from the pool, so the other
+     * phases only go through live enemies
+     */
+    private void removeDeadEnemies() {
+        Enemies e = enemies;
+        int k = 0;
+        while (k < e.count) {
+            if (e.alive[k]) {
+                k++;
+            } else {
+                // the last enemy fills the gap and keeps its grid place
+                int moved = e.remove(k);
+                if (moved != k) {
+                    enemyGrid.rename(moved, k);
+                }
+            }
+        }
+        removals = 0;
+    }
+
+    /**
+     * Destroys the enemies touching one laser
+     *
+     * @param x1 x coordinate of the laser's start
+     * @param y1 y coordinate of the laser's start
+     * @param x2 x coordinate of the laser's end
+     * @param y2 y coordinate of the laser's end
+     */
+    private void checkLaserHits(double x1, double y1, double x2, double y2) {
+        // only the enemies in the grid cells along the laser are checked
+        int count = enemyGrid.querySegment(x1, y1, x2, y2, found);
+        // enemy death checks
+        for (int k = 0; k < count; k++) {
+            int i = found[k];
+            hitBox.setRect(enemies.x[i], enemies.y[i], enemies.size[i],
+                    enemies.size[i]);
+            // check if the enemy is touching the laser
+            if (hitBox.intersectsLine(x1, y1, x2, y2)) {
+                destroyEnemy(i, count);
+            }
+        }
+    }
+
+    /**
+     * Destroys an enemy hit by a laser
+     *
+     * @param i the enemy
+     * @param candidates number of enemies the laser's grid search returned
+     */
+    private void destroyEnemy(int i, int candidates) {
+        GameEvents.enemyHit(i, enemies.x[i], enemies.y[i], candidates);
+        // enemy becomess dead
+        enemies.kill(i);
+        // score increases
+        score++;
+        // the enemy is taken out of the grid (and out of the pool at the
+        // end of the phase)
+        enemyGrid.remove(i);
+        removals++;
+        // sparks fly out of the enemy's center
+        explode(enemies.x[i] + enemies.size[i] / 2,
+                enemies.y[i] + enemies.size[i] / 2);
+        // the listener plays an explosion sound effect
+        listener.enemyDestroyed();
+        // amount of dead enemies increases
+        enemiesDead++;
+        // check if all enemies are dead
+        if (enemiesDead == enemyAmount) {
+            // load a new wave after a delay
+            timers.schedule(WAVE_DELAY_TICKS, nextWave);
+        }
+    }
+
+    /**
+     * Moves the game camera to the position of the drone
+     */
+    void updateCamera() {
+        // set camera coordinates
+        xCam = drone.getX() - X_CENTER + DRONE_SIZE / 2;
+        yCam = drone.getY() - Y_CENTER + DRONE_SIZE / 2;
+        // the player's viewing rectangle is updated with the camera
+        view.setFrame(xCam, yCam, X_CENTER * 2, Y_CENTER * 2);
+    }
+
+}
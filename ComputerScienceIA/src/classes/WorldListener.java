@@ -0,0 +1,34 @@
+package classes;
+
+/**
+ * WorldListener.java - Abstract methods for reacting to events in the world
+ *
+ * @author Darwin
+ */
+public interface WorldListener {
+
+    // listener that ignores every event (used when running headless)
+    public static final WorldListener NONE = new WorldListener() {
+        @Override
+        public void laserFired() {
+        }
+
+        @Override
+        public void enemyDestroyed() {
+        }
+
+        @Override
+        public void gameLost(int score) {
+        }
+    };
+
+    // method called when the drone shoots a laser
+    public void laserFired();
+
+    // method called when an enemy is destroyed by a laser
+    public void enemyDestroyed();
+
+    // method called once when an enemy reaches the ground
+    public void gameLost(int score);
+
+}
@@ -0,0 +1,897 @@
+package classes;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Line2D;
+import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * WorldRenderer.java - draws a frame interpolated between two world states
+ *
+ * The frame is drawn into a pixel buffer, so points such as the radar blips
+ * are written straight into its pixels, and the finished frame is copied to
+ * the screen with one call. The drone and the enemies are stamped from
+ * sprites drawn once when the renderer is made.
+ *
+ * With more than one render thread the frame is split into bands of rows.
+ * Each band has a renderer of its own (with its own background tiles and
+ * reused objects) that draws only its rows of the shared frame on a thread
+ * of its own (the caller draws the first band itself). Before the bands
+ * start, the caller sorts the blips, particles, enemies and lasers into the
+ * bands whose rows they touch, so each band only goes through its own. The
+ * bands only read the two states, so they can all be drawn at once, and the
+ * frame is copied to the screen when every band is finished. A band that
+ * fails makes the caller's draw fail. Close stops the band threads when a
+ * game ends, and the next frame starts them again.
+ *
+ * @author Darwin
+ */
+public class WorldRenderer {
+
+    // number of threads that draw a frame (-Dgame.renderThreads=N, 1 draws
+    // it on the caller's thread)
+    static final int THREADS = Math.max(1, Integer.getInteger("game.renderThreads", 1));
+    // constants
+    private static final int DRONE_SIZE = World.DRONE_SIZE;
+    private static final int X_CENTER = World.X_CENTER;
+    private static final int Y_CENTER = World.Y_CENTER;
+    private static final int MAP_SIZE = World.MAP_SIZE;
+    private static final double MAP_SCALE = World.MAP_SCALE;
+    private static final int HUD_TEXT_HEIGHT = 40;
+    // where the profiler overlay is drawn and its line height
+    private static final int OVERLAY_X = 1200;
+    private static final int OVERLAY_Y = 300;
+    private static final int OVERLAY_TEXT_HEIGHT = 22;
+    // width of each overlay column in characters
+    private static final int OVERLAY_COLUMN = 8;
+    // pixels of a radar blip (a ring 5 pixels across) and its colour
+    private static final int[] BLIP_DX = {1, 2, 3, 0, 4, 0, 4, 0, 4, 1, 2, 3};
+    private static final int[] BLIP_DY = {0, 0, 0, 1, 1, 2, 2, 3, 3, 4, 4, 4};
+    private static final int BLIP_SIZE = 5;
+    private static final int BLIP_RGB = 0x00FF00;
+    // rows added above and below an enemy and a laser when sorting them into
+    // bands (an enemy's outline may spill a row past its size, and a laser
+    // is drawn with a wide brush that has square ends)
+    private static final int ENEMY_MARGIN = 2;
+    private static final int LASER_MARGIN = 6;
+    // number of drone sprites (one for each degree) and the drone colour
+    private static final int DRONE_ANGLES = 360;
+    private static final int DRONE_RGB = 0xFFFFFF;
+    // smallest and largest enemy sizes and the enemy colour (Color.RED)
+    private static final int MIN_ENEMY_SIZE = WaveGenerator.MIN_SIZE;
+    private static final int MAX_ENEMY_SIZE = WaveGenerator.MAX_SIZE;
+    private static final int ENEMY_RGB = 0xFF0000;
+    // the drone turned to each whole degree and an enemy of each size
+    // (shared by the bands)
+    private final SpriteCache droneSprites;
+    private final SpriteCache enemySprites;
+    // object instances reused every frame
+    private final BasicStroke laserStroke = new BasicStroke(5);
+    private final BasicStroke normalStroke = new BasicStroke();
+    // holds the characters of one line of HUD text
+    private final char[] text = new char[128];
+    private int textLength = 0;
+    private final Font textHUD = new Font("Monospaced", 0, 17);
+    private final Rectangle2D.Double miniMap = new Rectangle2D.Double();
+    private final Line2D.Double deltaInd = new Line2D.Double();
+    private final Rectangle2D.Double view = new Rectangle2D.Double();
+    private final Line2D.Double laser = new Line2D.Double();
+    private final Point2D.Double laserStart = new Point2D.Double();
+    // the stars, buildings and zone outline, drawn once into tiles
+    private final BackgroundLayer background;
+    // the frame (or band of it) being drawn and its graphics
+    private final PixelBuffer frame;
+    private final Graphics2D g2d;
+    // the interpolated drone and the camera of the frame being drawn
+    private double droneX;
+    private double droneY;
+    private double angle;
+    private double xDelta;
+    private double yDelta;
+    private int camX;
+    private int camY;
+    // true if both states are from the same wave
+    private boolean sameWave;
+    // the renderer of each band (null when the frame is drawn on the
+    // caller's thread) and the threads that run them (null while they are
+    // stopped as well)
+    private final WorldRenderer[] bands;
+    private Band[] threads;
+    // the band each row of the frame is in
+    private final int[] bandOfRow;
+    // the blips, particles, enemies and lasers each band draws
+    private final Buckets blips;
+    private final Buckets particles;
+    private final Buckets enemies;
+    private final Buckets lasers;
+    // the renderer of the whole frame and this band's number (null and 0
+    // unless this renderer draws a band)
+    private final WorldRenderer whole;
+    private final int band;
+    // number of frames started, bands still being drawn and the thread
+    // waiting for them
+    private volatile long frames = 0;
+    private final AtomicInteger pending = new AtomicInteger();
+    private volatile Thread waiter;
+    // what went wrong in a band during the last frame (null if nothing did)
+    private volatile Throwable failure;
+    // true while the band threads are being told to stop
+    private volatile boolean closed = false;
+    // what the bands are drawing
+    private WorldState bandPrev;
+    private WorldState bandCurr;
+    private double bandAlpha;
+    private boolean bandHUD;
+    // time taken to present the previous frame (shown on the HUD when the
+    // game draws its own frames, -1 otherwise)
+    long presentNanos = -1;
+    // the profiler shown in the overlay (null hides the overlay)
+    volatile FrameProfiler overlay = null;
+    // receives the percentiles shown in the overlay
+    private final long[] percentiles = new long[FrameProfiler.FRACTIONS.length];
+
+    /**
+     * Default Constructor
+     */
+    public WorldRenderer() {
+        this(THREADS);
+    }
+
+    /**
+     * constructor for a renderer that draws on a number of threads
+     *
+     * @param threads number of threads (1 draws on the caller's thread)
+     */
+    public WorldRenderer(int threads) {
+        frame = new PixelBuffer(X_CENTER * 2, Y_CENTER * 2);
+        g2d = frame.getGraphics();
+        background = new BackgroundLayer(X_CENTER * 2, Y_CENTER * 2);
+        droneSprites = new SpriteCache(DRONE_ANGLES, DRONE_SIZE);
+        enemySprites = new SpriteCache(MAX_ENEMY_SIZE - MIN_ENEMY_SIZE + 1,
+                MAX_ENEMY_SIZE);
+        // the drone is turned around its center
+        Drone shape = new Drone(DRONE_SIZE);
+        AffineTransform turn = new AffineTransform();
+        for (int a = 0; a < DRONE_ANGLES; a++) {
+            turn.setToRotation(Math.toRadians(a * 360.0 / DRONE_ANGLES));
+            turn.translate(-DRONE_SIZE / 2, -DRONE_SIZE / 2);
+            droneSprites.put(a, shape, turn);
+        }
+        // an enemy is drawn from its top left corner
+        for (int s = MIN_ENEMY_SIZE; s <= MAX_ENEMY_SIZE; s++) {
+            enemySprites.put(s - MIN_ENEMY_SIZE, new Rectangle2D.Double(0, 0, s, s), null);
+        }
+        whole = null;
+        band = 0;
+        if (threads > 1) {
+            // the rows are shared out as evenly as possible
+            bands = new WorldRenderer[threads];
+            bandOfRow = new int[frame.height];
+            for (int b = 0; b < threads; b++) {
+                int top = frame.height * b / threads;
+                int bottom = frame.height * (b + 1) / threads;
+                bands[b] = new WorldRenderer(this,
+                        new PixelBuffer(frame, top, bottom - top), b);
+                Arrays.fill(bandOfRow, top, bottom, b);
+            }
+            blips = new Buckets(threads);
+            particles = new Buckets(threads);
+            enemies = new Buckets(threads);
+            lasers = new Buckets(threads);
+            startBands();
+        } else {
+            bands = null;
+            this.threads = null;
+            bandOfRow = null;
+            blips = null;
+            particles = null;
+            enemies = null;
+            lasers = null;
+        }
+    }
+
+    /**
+     * constructor for the renderer of one band of another renderer's frame
+     *
+     * @param whole the renderer of the whole frame
+     * @param rows the band's rows of the frame
+     * @param band the band's number
+     */
+    private WorldRenderer(WorldRenderer whole, PixelBuffer rows, int band) {
+        frame = rows;
+        g2d = rows.getGraphics();
+        background = new BackgroundLayer(X_CENTER * 2, rows.height);
+        droneSprites = whole.droneSprites;
+        enemySprites = whole.enemySprites;
+        bands = null;
+        threads = null;
+        bandOfRow = null;
+        blips = null;
+        particles = null;
+        enemies = null;
+        lasers = null;
+        this.whole = whole;
+        this.band = band;
+    }
+
+    /**
+     * Draws the world between two consecutive states
+     *
+     * @param target the graphics the finished frame is copied to
+     * @param prev the older state
+     * @param curr the newer state
+     * @param alpha how far between the two states the frame is (0 to 1)
+     * @param enableHUD true if the HUD should be drawn
+     */
+    public void draw(Graphics2D target, WorldState prev, WorldState curr,
+            double alpha, boolean enableHUD) {
+        if (bands == null) {
+            paint(prev, curr, alpha, enableHUD);
+        } else {
+            bandPrev = prev;
+            bandCurr = curr;
+            bandAlpha = alpha;
+            bandHUD = enableHUD;
+            sort(prev, curr, alpha, enableHUD);
+            paintBands();
+        }
+        // text is printed over the finished frame on this thread (Java2D
+        // keeps one list of glyphs for printing, and threads that print at
+        // the same time each make a new one)
+        print(prev, curr, alpha, enableHUD);
+        // the finished frame is put on the target in one copy
+        target.drawImage(frame.getImage(), 0, 0, null);
+    }
+
+    /**
+     * Draws the first band on this thread and the others on their own
+     * threads, and waits for all of them
+     *
+     * The band threads are woken and waited for by parking rather than with
+     * a thread pool, because handing tasks to a pool and waiting on them
+     * creates new objects, and a frame must not.
+     */
+    private void paintBands() {
+        if (threads == null) {
+            startBands();
+        }
+        failure = null;
+        waiter = Thread.currentThread();
+        pending.set(threads.length);
+        frames++;
+        for (Band band : threads) {
+            LockSupport.unpark(band.thread);
+        }
+        try {
+            bands[0].paint(bandPrev, bandCurr, bandAlpha, bandHUD);
+        } finally {
+            // the other bands are still drawing into the frame even if the
+            // first one failed
+            while (pending.get() > 0) {
+                LockSupport.park(this);
+            }
+        }
+        Throwable e = failure;
+        if (e != null) {
+            throw new IllegalStateException("a render band failed", e);
+        }
+    }
+
+    /**
+     * Starts a thread for every band but the first (which the caller draws)
+     */
+    private void startBands() {
+        closed = false;
+        threads = new Band[bands.length - 1];
+        for (int b = 1; b < bands.length; b++) {
+            threads[b - 1] = new Band(bands[b], b);
+        }
+    }
+
+    /**
+     * Stops the band threads (the next frame drawn starts them again)
+     */
+    public void close() {
+        if (threads == null) {
+            return;
+        }
+        closed = true;
+        for (Band band : threads) {
+            LockSupport.unpark(band.thread);
+            try {
+                band.thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        threads = null;
+    }
+
+    /**
+     * retrieve the ids of the band threads (so their allocations can be
+     * counted)
+     *
+     * @return the thread ids (empty when the frame is drawn on the caller's
+     * thread or the band threads are stopped)
+     */
+    long[] getThreadIds() {
+        if (threads == null) {
+            return new long[0];
+        }
+        long[] ids = new long[threads.length];
+        for (int b = 0; b < threads.length; b++) {
+            ids[b] = threads[b].thread.getId();
+        }
+        return ids;
+    }
+
+    /**
+     * Sorts the blips, particles, enemies and lasers of a frame into the
+     * bands whose rows they touch (in the order they are drawn, so where
+     * two overlap the bands draw the same one on top)
+     *
+     * @param prev the older state
+     * @param curr the newer state
+     * @param alpha how far between the two states the frame is (0 to 1)
+     * @param enableHUD true if the HUD should be drawn
+     */
+    private void sort(WorldState prev, WorldState curr, double alpha,
+            boolean enableHUD) {
+        place(prev, curr, alpha);
+        blips.clear(curr.enemyCount);
+        particles.clear(curr.particleCount);
+        enemies.clear(curr.visibleCount);
+        lasers.clear(curr.laserCount);
+        if (enableHUD) {
+            for (int i = 0; i < curr.enemyCount; i++) {
+                int y = blipY(prev, curr, i, alpha);
+                addRows(blips, i, y, y + BLIP_SIZE - 1);
+            }
+        }
+        // a particle's row is worked out the same way the frame plots it
+        final float b = (float) (1 - alpha);
+        final float oy = (float) camY;
+        for (int k = 0; k < curr.particleCount; k++) {
+            int y = (int) Math.floor(curr.particleY[k] - curr.particleDY[k] * b - oy);
+            addRows(particles, k, y, y);
+        }
+        for (int k = 0; k < curr.visibleCount; k++) {
+            int i = curr.visible[k];
+            int y = (int) Math.floor(enemyY(prev, curr, i, sameWave, alpha) - camY + 0.5);
+            addRows(enemies, i, y - ENEMY_MARGIN,
+                    y + enemySize(curr, i) + ENEMY_MARGIN);
+        }
+        for (int i = 0; i < curr.laserCount; i++) {
+            if (laserShown(curr, i, alpha)) {
+                double y = laserStart.y - camY;
+                double end = y + curr.laserDY[i];
+                addRows(lasers, i, (int) Math.floor(Math.min(y, end)) - LASER_MARGIN,
+                        (int) Math.floor(Math.max(y, end)) + LASER_MARGIN);
+            }
+        }
+    }
+
+    /**
+     * Adds something to the bands that hold any of its rows (nothing is
+     * added if it is above or below the frame)
+     *
+     * @param buckets the bands' lists of that kind of thing
+     * @param item the thing's slot in the state
+     * @param top its first row
+     * @param bottom its last row
+     */
+    private void addRows(Buckets buckets, int item, int top, int bottom) {
+        if (bottom < 0 || top >= frame.height) {
+            return;
+        }
+        buckets.add(item, bandOfRow[Math.max(top, 0)],
+                bandOfRow[Math.min(bottom, frame.height - 1)]);
+    }
+
+    /**
+     * Works out where the drone and the camera are between two states
+     *
+     * @param prev the older state
+     * @param curr the newer state
+     * @param alpha how far between the two states the frame is (0 to 1)
+     */
+    private void place(WorldState prev, WorldState curr, double alpha) {
+        // interpolate the drone between the two states
+        droneX = lerp(prev.droneX, curr.droneX, alpha);
+        droneY = lerp(prev.droneY, curr.droneY, alpha);
+        angle = lerp(prev.droneAngle, curr.droneAngle, alpha);
+        xDelta = lerp(prev.xDelta, curr.xDelta, alpha);
+        yDelta = lerp(prev.yDelta, curr.yDelta, alpha);
+        // the camera follows the interpolated drone
+        double xCam = droneX - X_CENTER + DRONE_SIZE / 2;
+        double yCam = droneY - Y_CENTER + DRONE_SIZE / 2;
+        view.setFrame(xCam, yCam, X_CENTER * 2, Y_CENTER * 2);
+        // whole pixels are used so shapes are drawn without being copied
+        camX = (int) Math.floor(xCam);
+        camY = (int) Math.floor(yCam);
+        // enemies only move smoothly if both states are from the same wave
+        sameWave = prev.waveNumber == curr.waveNumber;
+    }
+
+    /**
+     * Draws the world between two consecutive states into this renderer's
+     * rows of the frame (a band only draws what was sorted into it)
+     *
+     * @param prev the older state
+     * @param curr the newer state
+     * @param alpha how far between the two states the frame is (0 to 1)
+     * @param enableHUD true if the HUD should be drawn
+     */
+    private void paint(WorldState prev, WorldState curr, double alpha,
+            boolean enableHUD) {
+        place(prev, curr, alpha);
+
+        // the frame starts out black
+        frame.fill(0);
+        // the HUD is drawn with a thin brush
+        g2d.setStroke(normalStroke);
+        // the stars, buildings and zone outline are copied from the
+        // background tiles underneath everything else (a band only needs
+        // the tiles behind its rows)
+        g2d.translate(0, frame.top);
+        background.draw(g2d, curr, camX, camY + frame.top, X_CENTER * 2,
+                frame.height);
+        g2d.translate(0, -frame.top);
+        // check if the HUD is toggled on
+        if (enableHUD) {
+            // set colour to green for HUD
+            g2d.setColor(Color.GREEN);
+            // draw minimap
+            miniMap.setFrame(X_CENTER - droneX / MAP_SCALE,
+                    Y_CENTER - droneY / MAP_SCALE - MAP_SIZE, MAP_SIZE, MAP_SIZE);
+            g2d.draw(miniMap);
+            // draw velocity vector
+            deltaInd.setLine(X_CENTER, Y_CENTER, X_CENTER + xDelta * 10,
+                    Y_CENTER + yDelta * 10);
+            g2d.draw(deltaInd);
+            // draw enemy blips on minimap (straight into the frame's pixels)
+            if (whole == null) {
+                for (int i = 0; i < curr.enemyCount; i++) {
+                    stampBlip(prev, curr, i, alpha);
+                }
+            } else {
+                int[] items = whole.blips.items[band];
+                for (int k = 0; k < whole.blips.count[band]; k++) {
+                    stampBlip(prev, curr, items[k], alpha);
+                }
+            }
+        }
+
+        // commence camera tracking
+        // (making a transition from rendering HUD elements to rendering the game world)
+        g2d.translate(-camX, -camY);
+
+        // plot the engine exhaust and explosion sparks straight into the
+        // frame's pixels (each particle is pulled back along its step, so
+        // they move smoothly between ticks)
+        if (whole == null) {
+            frame.plot(curr.particleX, curr.particleY, curr.particleDX,
+                    curr.particleDY, curr.particleRGB, curr.particleCount,
+                    1 - alpha, camX, camY);
+        } else {
+            frame.plot(whole.particles.items[band], whole.particles.count[band],
+                    curr.particleX, curr.particleY, curr.particleDX,
+                    curr.particleDY, curr.particleRGB, 1 - alpha, camX, camY);
+        }
+
+        // stamp the drone sprite nearest its angle around its center
+        int turn = (int) Math.floorMod(Math.round(angle * DRONE_ANGLES / 360),
+                (long) DRONE_ANGLES);
+        droneSprites.stamp(frame, turn,
+                (int) Math.floor(droneX + DRONE_SIZE / 2 - camX + 0.5),
+                (int) Math.floor(droneY + DRONE_SIZE / 2 - camY + 0.5), DRONE_RGB);
+
+        // draw enemies which appear onscreen
+        if (whole == null) {
+            for (int k = 0; k < curr.visibleCount; k++) {
+                stampEnemy(prev, curr, curr.visible[k], alpha);
+            }
+        } else {
+            int[] items = whole.enemies.items[band];
+            for (int k = 0; k < whole.enemies.count[band]; k++) {
+                stampEnemy(prev, curr, items[k], alpha);
+            }
+        }
+
+        // set the drawing color to yellow
+        g2d.setColor(Color.YELLOW);
+        // the brush is set to a thicker stroke
+        g2d.setStroke(laserStroke);
+        if (whole == null) {
+            for (int i = 0; i < curr.laserCount; i++) {
+                // check if the laser is within the boundaries
+                if (laserShown(curr, i, alpha)) {
+                    drawLaser(curr, i);
+                }
+            }
+        } else {
+            int[] items = whole.lasers.items[band];
+            for (int k = 0; k < whole.lasers.count[band]; k++) {
+                laserShown(curr, items[k], alpha);
+                drawLaser(curr, items[k]);
+            }
+        }
+        // the graphics are given back the way they were received
+        g2d.translate(camX, camY);
+    }
+
+    /**
+     * Finds the top row of an enemy's blip on the minimap
+     *
+     * @param prev the older state
+     * @param curr the newer state
+     * @param i the enemy's slot in the newer state
+     * @param alpha how far between the two states the frame is (0 to 1)
+     * @return the blip's top row
+     */
+    private int blipY(WorldState prev, WorldState curr, int i, double alpha) {
+        double ey = enemyY(prev, curr, i, sameWave, alpha);
+        double size = curr.enemySize[i];
+        return (int) Math.floor(Y_CENTER - droneY / MAP_SCALE
+                + (ey - size / 5) / MAP_SCALE);
+    }
+
+    /**
+     * Stamps an enemy's blip on the minimap
+     *
+     * @param prev the older state
+     * @param curr the newer state
+     * @param i the enemy's slot in the newer state
+     * @param alpha how far between the two states the frame is (0 to 1)
+     */
+    private void stampBlip(WorldState prev, WorldState curr, int i, double alpha) {
+        double size = curr.enemySize[i];
+        frame.stamp((int) Math.floor(X_CENTER - droneX / MAP_SCALE
+                + (curr.enemyX[i] - size / 5) / MAP_SCALE),
+                blipY(prev, curr, i, alpha), BLIP_DX, BLIP_DY, BLIP_RGB);
+    }
+
+    /**
+     * Finds the size of the sprite an enemy is stamped with
+     *
+     * @param curr the state
+     * @param i the enemy's slot
+     * @return the sprite's size
+     */
+    private static int enemySize(WorldState curr, int i) {
+        return Math.max(MIN_ENEMY_SIZE, Math.min(MAX_ENEMY_SIZE,
+                (int) curr.enemySize[i]));
+    }
+
+    /**
+     * Stamps the enemy sprite of an enemy's size
+     *
+     * @param prev the older state
+     * @param curr the newer state
+     * @param i the enemy's slot in the newer state
+     * @param alpha how far between the two states the frame is (0 to 1)
+     */
+    private void stampEnemy(WorldState prev, WorldState curr, int i, double alpha) {
+        double ey = enemyY(prev, curr, i, sameWave, alpha);
+        enemySprites.stamp(frame, enemySize(curr, i) - MIN_ENEMY_SIZE,
+                (int) Math.floor(curr.enemyX[i] - camX + 0.5),
+                (int) Math.floor(ey - camY + 0.5), ENEMY_RGB);
+    }
+
+    /**
+     * Finds where a laser starts and checks that it is drawn (its start must
+     * be in the view and in the zone)
+     *
+     * @param curr the state
+     * @param i the laser's slot
+     * @param alpha how far between the last state and this one the frame is
+     * @return true if the laser is drawn
+     */
+    private boolean laserShown(WorldState curr, int i, double alpha) {
+        // lasers that already existed on the previous tick move smoothly
+        // (a laser moves its own length every tick)
+        double back = curr.laserAge[i] > 1 ? 1 - alpha : 0;
+        laserStart.setLocation(curr.laserX[i] - curr.laserDX[i] * back,
+                curr.laserY[i] - curr.laserDY[i] * back);
+        return view.contains(laserStart) && curr.zone.contains(laserStart);
+    }
+
+    /**
+     * Draws a laser from the start found by laserShown
+     *
+     * @param curr the state
+     * @param i the laser's slot
+     */
+    private void drawLaser(WorldState curr, int i) {
+        double x = laserStart.x;
+        double y = laserStart.y;
+        laser.setLine(x, y, x + curr.laserDX[i], y + curr.laserDY[i]);
+        g2d.draw(laser);
+    }
+
+    /**
+     * Prints the HUD text and the profiler overlay over the whole frame
+     *
+     * @param prev the older state
+     * @param curr the newer state
+     * @param alpha how far between the two states the frame is (0 to 1)
+     * @param enableHUD true if the HUD should be drawn
+     */
+    private void print(WorldState prev, WorldState curr, double alpha,
+            boolean enableHUD) {
+        // check if the HUD is toggled on
+        if (enableHUD) {
+            double droneY = lerp(prev.droneY, curr.droneY, alpha);
+            double xDelta = lerp(prev.xDelta, curr.xDelta, alpha);
+            double yDelta = lerp(prev.yDelta, curr.yDelta, alpha);
+            g2d.setColor(Color.GREEN);
+            // set the font size for the HUD
+            g2d.setFont(textHUD);
+            // print drone throttle
+            drawHudLine(g2d, "THR: ", (int) (curr.thrust * 50 / World.GRAVITY), "%", 0);
+            // print drone horizontal movement
+            drawHudLine(g2d, "HORIZ: ", (int) (Math.abs(xDelta * 7)), "m/s", 1);
+            // print drone vertical movement
+            drawHudLine(g2d, "VERT: ", (int) (-yDelta * 7), "m/s", 2);
+            // print drone altitude
+            drawHudLine(g2d, "ALT: ", (int) (-droneY - DRONE_SIZE) / 10, "m", 3);
+            // print ammo rounds left
+            drawHudLine(g2d, "LSR: ", curr.ammo, "", 4);
+            // print the present time in microseconds
+            if (presentNanos >= 0) {
+                drawHudLine(g2d, "PRS: ", presentNanos / 1000, "us", 5);
+            }
+        }
+        // the profiler overlay is drawn over everything
+        FrameProfiler profiler = overlay;
+        if (profiler != null) {
+            drawOverlay(g2d, profiler);
+        }
+    }
+
+    /**
+     * Prints a table of how long each phase takes next to the HUD
+     *
+     * @param g2d the graphics to draw on
+     * @param profiler the profiler to show
+     */
+    private void drawOverlay(Graphics2D g2d, FrameProfiler profiler) {
+        g2d.setColor(Color.CYAN);
+        g2d.setFont(textHUD);
+        textLength = 0;
+        appendPadded("us", 2 * OVERLAY_COLUMN);
+        appendPadded("p50", OVERLAY_COLUMN);
+        appendPadded("p99", OVERLAY_COLUMN);
+        appendPadded("p99.9", OVERLAY_COLUMN);
+        appendPadded("max", OVERLAY_COLUMN);
+        g2d.drawChars(text, 0, textLength, OVERLAY_X, OVERLAY_Y);
+        for (int i = 0; i < FrameProfiler.PHASES; i++) {
+            LatencyHistogram h = profiler.get(i);
+            h.percentiles(FrameProfiler.FRACTIONS, percentiles);
+            textLength = 0;
+            appendPadded(FrameProfiler.NAMES[i], 2 * OVERLAY_COLUMN);
+            for (long p : percentiles) {
+                appendColumn(p / 1000);
+            }
+            appendColumn(h.getMax() / 1000);
+            g2d.drawChars(text, 0, textLength, OVERLAY_X,
+                    OVERLAY_Y + OVERLAY_TEXT_HEIGHT * (i + 1));
+        }
+    }
+
+    /**
+     * Adds a piece of text to the line, followed by spaces up to a width
+     *
+     * @param s the text to add
+     * @param width the width in characters
+     */
+    private void appendPadded(String s, int width) {
+        int end = textLength + width;
+        append(s);
+        while (textLength < end) {
+            text[textLength++] = ' ';
+        }
+    }
+
+    /**
+     * Adds a number to the line as one overlay column
+     *
+     * @param value the number to add
+     */
+    private void appendColumn(long value) {
+        int end = textLength + OVERLAY_COLUMN;
+        appendNumber(value);
+        while (textLength < end) {
+            text[textLength++] = ' ';
+        }
+    }
+
+    /**
+     * Prints one line of the HUD without building a new string
+     *
+     * @param g2d the graphics to draw on
+     * @param label text before the number
+     * @param value the number
+     * @param unit text after the number
+     * @param line the line number (0 is the top line)
+     */
+    private void drawHudLine(Graphics2D g2d, String label, long value,
+            String unit, int line) {
+        textLength = 0;
+        append(label);
+        appendNumber(value);
+        append(unit);
+        g2d.drawChars(text, 0, textLength, 300, 300 + HUD_TEXT_HEIGHT * line);
+    }
+
+    /**
+     * Adds a piece of text to the HUD line
+     *
+     * @param s the text to add
+     */
+    private void append(String s) {
+        s.getChars(0, s.length(), text, textLength);
+        textLength += s.length();
+    }
+
+    /**
+     * Adds a whole number to the HUD line
+     *
+     * @param value the number to add
+     */
+    private void appendNumber(long value) {
+        if (value < 0) {
+            text[textLength++] = '-';
+            value = -value;
+        }
+        // the digits are written backwards, then reversed
+        int start = textLength;
+        do {
+            text[textLength++] = (char) ('0' + value % 10);
+            value /= 10;
+        } while (value > 0);
+        for (int i = start, j = textLength - 1; i < j; i++, j--) {
+            char c = text[i];
+            text[i] = text[j];
+            text[j] = c;
+        }
+    }
+
+    /**
+     * Linear interpolation between two values
+     *
+     * @param a the value at alpha 0
+     * @param b the value at alpha 1
+     * @param alpha the interpolation amount
+     * @return the interpolated value
+     */
+    static double lerp(double a, double b, double alpha) {
+        return a + (b - a) * alpha;
+    }
+
+    /**
+     * Finds where to draw an enemy between two ticks (enemies change slot
+     * when others are removed, so the slot is only used if it still holds
+     * the same enemy)
+     *
+     * @param prev the earlier state
+     * @param curr the later state
+     * @param i the enemy's slot in the later state
+     * @param sameWave true if both states are from the same wave
+     * @param alpha the interpolation amount
+     * @return the enemy's y coordinate
+     */
+    private static double enemyY(WorldState prev, WorldState curr, int i,
+            boolean sameWave, double alpha) {
+        if (sameWave && i < prev.enemyCount && prev.enemyId[i] == curr.enemyId[i]) {
+            return lerp(prev.enemyY[i], curr.enemyY[i], alpha);
+        }
+        return curr.enemyY[i];
+    }
+
+    /**
+     * A thread that draws one band of every frame
+     */
+    private final class Band implements Runnable {
+
+        private final WorldRenderer renderer;
+        private final Thread thread;
+        // the last frame the band drew
+        private long drawn = frames;
+
+        /**
+         * constructor starts the band's thread
+         *
+         * @param renderer the band's renderer
+         * @param number the band's number (for the thread's name)
+         */
+        Band(WorldRenderer renderer, int number) {
+            this.renderer = renderer;
+            thread = new Thread(this, "render band " + number);
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                // wait for the next frame (or to be closed)
+                while (frames == drawn && !closed) {
+                    LockSupport.park(this);
+                }
+                if (closed) {
+                    return;
+                }
+                drawn = frames;
+                try {
+                    renderer.paint(bandPrev, bandCurr, bandAlpha, bandHUD);
+                } catch (RuntimeException | Error e) {
+                    // handed to the caller once every band is finished
+                    failure = e;
+                } finally {
+                    // the last band to finish wakes the caller
+                    if (pending.decrementAndGet() == 0) {
+                        LockSupport.unpark(waiter);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Buckets - the things of one kind that each band draws, listed by their
+     * slots in the state (reused every frame, and only grown when there are
+     * more things than ever before, like the arrays of a WorldState)
+     */
+    private static final class Buckets {
+
+        // each band's slots and how many of them are used
+        final int[][] items;
+        final int[] count;
+
+        /**
+         * constructor for empty lists
+         *
+         * @param bands number of bands
+         */
+        Buckets(int bands) {
+            items = new int[bands][16];
+            count = new int[bands];
+        }
+
+        /**
+         * Empties every band's list, making room for all the things in each
+         *
+         * @param total number of things of this kind
+         */
+        void clear(int total) {
+            for (int b = 0; b < items.length; b++) {
+                if (items[b].length < total) {
+                    items[b] = new int[Math.max(total, items[b].length * 2)];
+                }
+            }
+            Arrays.fill(count, 0);
+        }
+
+        /**
+         * Adds a thing to a run of bands
+         *
+         * @param item the thing's slot in the state
+         * @param first the first band it touches
+         * @param last the last band it touches
+         */
+        void add(int item, int first, int last) {
+            for (int b = first; b <= last; b++) {
+                items[b][count[b]++] = item;
+            }
+        }
+    }
+
+}
@@ -0,0 +1,203 @@
+package classes;
+
+import java.awt.geom.Rectangle2D;
+
+/**
+ * WorldState.java - a copy of everything the renderer needs from one tick
+ *
+ * @author Darwin
+ */
+public class WorldState {
+
+    // extra space around the view searched for enemies, so that enemies
+    // moving into view between two ticks are not missed
+    private static final double VIEW_MARGIN = 400;
+
+    // tick the state was taken on
+    long tick;
+    // drone variables
+    double droneX;
+    double droneY;
+    double droneAngle;
+    double thrust;
+    double xDelta;
+    double yDelta;
+    int ammo;
+    // game progress
+    int score;
+    int waveNumber;
+    // lasers in flight (start point, step and age)
+    int laserCount;
+    double[] laserX = new double[0];
+    double[] laserY = new double[0];
+    double[] laserDX = new double[0];
+    double[] laserDY = new double[0];
+    int[] laserAge = new int[0];
+    // sparks and exhaust (position, step and colour)
+    int particleCount;
+    float[] particleX = new float[0];
+    float[] particleY = new float[0];
+    float[] particleDX = new float[0];
+    float[] particleDY = new float[0];
+    int[] particleRGB = new int[0];
+    // enemy variables (one entry per live enemy)
+    int enemyCount;
+    double[] enemyX = new double[0];
+    double[] enemyY = new double[0];
+    double[] enemySize = new double[0];
+    // numbers that match up the same enemy on two ticks
+    int[] enemyId = new int[0];
+    // enemies near the camera (found with the world's enemy grid)
+    int visibleCount;
+    int[] visible = new int[0];
+    // static scenery (never changes after the world is loaded)
+    Rectangle2D.Double zone;
+    long scenerySeed;
+
+    /**
+     * Copies the current state of a world
+     *
+     * @param w the world to copy
+     */
+    void copyFrom(World w) {
+        tick = w.tick;
+        droneX = w.drone.getX();
+        droneY = w.drone.getY();
+        droneAngle = w.drone.getAngle();
+        thrust = w.thrust;
+        xDelta = w.xDelta;
+        yDelta = w.yDelta;
+        ammo = w.ammo;
+        score = w.score;
+        waveNumber = w.waveNumber;
+        Projectiles p = w.lasers;
+        ensureLaserCapacity(p.count);
+        laserCount = p.count;
+        System.arraycopy(p.x, 0, laserX, 0, laserCount);
+        System.arraycopy(p.y, 0, laserY, 0, laserCount);
+        System.arraycopy(p.dx, 0, laserDX, 0, laserCount);
+        System.arraycopy(p.dy, 0, laserDY, 0, laserCount);
+        System.arraycopy(p.age, 0, laserAge, 0, laserCount);
+        // a world that is not drawn has no particles to copy
+        Particles f = w.particles;
+        particleCount = 0;
+        if (f != null) {
+            ensureParticleCapacity(f.count);
+            particleCount = f.count;
+            System.arraycopy(f.x, 0, particleX, 0, particleCount);
+            System.arraycopy(f.y, 0, particleY, 0, particleCount);
+            System.arraycopy(f.dx, 0, particleDX, 0, particleCount);
+            System.arraycopy(f.dy, 0, particleDY, 0, particleCount);
+            System.arraycopy(f.rgb, 0, particleRGB, 0, particleCount);
+        }
+        Enemies e = w.enemies;
+        ensureCapacity(e.count);
+        enemyCount = e.count;
+        System.arraycopy(e.x, 0, enemyX, 0, enemyCount);
+        System.arraycopy(e.y, 0, enemyY, 0, enemyCount);
+        System.arraycopy(e.size, 0, enemySize, 0, enemyCount);
+        System.arraycopy(e.id, 0, enemyId, 0, enemyCount);
+        // enemies that could appear onscreen are found with the grid
+        visibleCount = w.enemyGrid.queryRect(w.view.getMinX() - VIEW_MARGIN,
+                w.view.getMinY() - VIEW_MARGIN, w.view.getMaxX() + VIEW_MARGIN,
+                w.view.getMaxY() + VIEW_MARGIN, visible);
+        zone = w.zone;
+        scenerySeed = w.scenerySeed;
+    }
+
+    /**
+     * Copies another state into this one
+     *
+     * @param s the state to copy
+     */
+    void copyFrom(WorldState s) {
+        tick = s.tick;
+        droneX = s.droneX;
+        droneY = s.droneY;
+        droneAngle = s.droneAngle;
+        thrust = s.thrust;
+        xDelta = s.xDelta;
+        yDelta = s.yDelta;
+        ammo = s.ammo;
+        score = s.score;
+        waveNumber = s.waveNumber;
+        ensureLaserCapacity(s.laserCount);
+        laserCount = s.laserCount;
+        System.arraycopy(s.laserX, 0, laserX, 0, laserCount);
+        System.arraycopy(s.laserY, 0, laserY, 0, laserCount);
+        System.arraycopy(s.laserDX, 0, laserDX, 0, laserCount);
+        System.arraycopy(s.laserDY, 0, laserDY, 0, laserCount);
+        System.arraycopy(s.laserAge, 0, laserAge, 0, laserCount);
+        ensureParticleCapacity(s.particleCount);
+        particleCount = s.particleCount;
+        System.arraycopy(s.particleX, 0, particleX, 0, particleCount);
+        System.arraycopy(s.particleY, 0, particleY, 0, particleCount);
+        System.arraycopy(s.particleDX, 0, particleDX, 0, particleCount);
+        System.arraycopy(s.particleDY, 0, particleDY, 0, particleCount);
+        System.arraycopy(s.particleRGB, 0, particleRGB, 0, particleCount);
+        ensureCapacity(s.enemyCount);
+        enemyCount = s.enemyCount;
+        System.arraycopy(s.enemyX, 0, enemyX, 0, enemyCount);
+        System.arraycopy(s.enemyY, 0, enemyY, 0, enemyCount);
+        System.arraycopy(s.enemySize, 0, enemySize, 0, enemyCount);
+        System.arraycopy(s.enemyId, 0, enemyId, 0, enemyCount);
+        visibleCount = s.visibleCount;
+        System.arraycopy(s.visible, 0, visible, 0, visibleCount);
+        zone = s.zone;
+        scenerySeed = s.scenerySeed;
+    }
+
+    /**
+     * Grows the enemy arrays so they can hold the given number of enemies
+     *
+     * @param count number of enemies
+     */
+    private void ensureCapacity(int count) {
+        if (enemyX.length < count) {
+            // at least doubled, so a slowly rising count only grows the
+            // arrays a few times
+            int size = Math.max(count, enemyX.length * 2);
+            enemyX = new double[size];
+            enemyY = new double[size];
+            enemySize = new double[size];
+            enemyId = new int[size];
+            visible = new int[size];
+        }
+    }
+
+    /**
+     * Grows the laser arrays so they can hold the given number of lasers
+     *
+     * @param count number of lasers
+     */
+    private void ensureLaserCapacity(int count) {
+        if (laserX.length < count) {
+            // (doubled like the enemy arrays)
+            int size = Math.max(count, laserX.length * 2);
+            laserX = new double[size];
+            laserY = new double[size];
+            laserDX = new double[size];
+            laserDY = new double[size];
+            laserAge = new int[size];
+        }
+    }
+
+    /**
+     * Grows the particle arrays so they can hold the given number of
+     * particles
+     *
+     * @param count number of particles
+     */
+    private void ensureParticleCapacity(int count) {
+        if (particleX.length < count) {
+            // (doubled like the enemy arrays)
+            int size = Math.max(count, particleX.length * 2);
+            particleX = new float[size];
+            particleY = new float[size];
+            particleDX = new float[size];
+            particleDY = new float[size];
+            particleRGB = new int[size];
+        }
+    }
+
+}